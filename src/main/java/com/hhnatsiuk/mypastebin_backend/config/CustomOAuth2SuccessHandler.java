@@ -2,6 +2,7 @@ package com.hhnatsiuk.mypastebin_backend.config;
 
 import com.hhnatsiuk.mypastebin_backend.entity.User;
 import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
+import com.hhnatsiuk.mypastebin_backend.service.PrincipalCache;
 import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,11 +23,13 @@ public class CustomOAuth2SuccessHandler implements AuthenticationSuccessHandler
 
     private final JwtTokenUtil jwtTokenUtil;
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
     private final String redirectUrl = "http://localhost:5173/oauth2/redirect?token=";
 
-    public CustomOAuth2SuccessHandler(JwtTokenUtil jwtTokenUtil, UserRepository userRepository) {
+    public CustomOAuth2SuccessHandler(JwtTokenUtil jwtTokenUtil, UserRepository userRepository, PrincipalCache principalCache) {
         this.jwtTokenUtil = jwtTokenUtil;
         this.userRepository = userRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
@@ -40,7 +43,9 @@ public class CustomOAuth2SuccessHandler implements AuthenticationSuccessHandler
             newUser.setUsername(email.split("@")[0]);
             newUser.setIsActive(true);
             newUser.setOauth2User(true);
-            return userRepository.save(newUser);
+            User savedUser = userRepository.save(newUser);
+            principalCache.invalidate(savedUser.getUsername());
+            return savedUser;
         });
 
         String token = jwtTokenUtil.generateToken(user);
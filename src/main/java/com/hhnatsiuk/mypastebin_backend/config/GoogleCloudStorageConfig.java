@@ -1,5 +1,6 @@
 package com.hhnatsiuk.mypastebin_backend.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.storage.Storage;
@@ -9,6 +10,7 @@ import org.springframework.context.annotation.Configuration;
 import java.io.IOException;
 
 @Configuration
+@ConditionalOnProperty(name = "storage.type", havingValue = "gcs", matchIfMissing = true)
 public class GoogleCloudStorageConfig {
 
 
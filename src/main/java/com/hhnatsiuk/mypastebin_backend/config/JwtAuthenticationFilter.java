@@ -1,105 +1,95 @@
 package com.hhnatsiuk.mypastebin_backend.config;
 
-import com.hhnatsiuk.mypastebin_backend.entity.User;
-import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.service.PrincipalCache;
 import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Optional;
 
+/**
+ * Authenticates requests by their bearer token. Runs on every request, so requests to public
+ * endpoints are let through before anything else is done, without allocating, and log messages
+ * are only built when their level is enabled.
+ */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtTokenUtil jwtTokenUtil;
-    private final UserRepository userRepository;
+    private static final Logger logger = LogManager.getLogger(JwtAuthenticationFilter.class);
 
-    @Value("${app.security.public.endpoints}")
-    private String publicEndpoints;
+    private static final String BEARER_PREFIX = "Bearer ";
 
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final JwtTokenUtil jwtTokenUtil;
+    private final PrincipalCache principalCache;
+    private final PublicEndpointMatcher publicEndpoints;
 
-    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil, UserRepository userRepository) {
+    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil,
+                                   PrincipalCache principalCache,
+                                   @Value("${app.security.public.endpoints}") String publicEndpoints) {
         this.jwtTokenUtil = jwtTokenUtil;
-        this.userRepository = userRepository;
+        this.principalCache = principalCache;
+        this.publicEndpoints = new PublicEndpointMatcher(publicEndpoints);
     }
 
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        String authorizationHeader = request.getHeader("Authorization");
-        String token = null;
-        String username = null;
-
         String requestURI = request.getRequestURI();
-        logger.info("Incoming request to URI: " + requestURI);
-        logger.info("Authorization Header: " + (authorizationHeader != null ? authorizationHeader : "No Authorization Header"));
-
-        List<String> endpoints = Arrays.asList(publicEndpoints.split(","));
 
-        if (isPublicEndpoint(requestURI, endpoints)) {
-            logger.info("Public endpoint access allowed without token for URI: " + requestURI);
+        if (publicEndpoints.matches(requestURI)) {
+            logger.trace("Public endpoint access allowed without token for URI: {}", requestURI);
             filterChain.doFilter(request, response);
             return;
         }
 
-            if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            token = authorizationHeader.substring(7);
+        String authorizationHeader = request.getHeader("Authorization");
+        String token = null;
+        String username = null;
+
+        if (authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)) {
+            token = authorizationHeader.substring(BEARER_PREFIX.length());
             try {
                 username = jwtTokenUtil.extractUsername(token);
-                logger.info("Extracted username from token: " + username);
+                logger.debug("Extracted username from token: {}", username);
             } catch (Exception e) {
-                logger.error("JWT Token extraction failed. Exception: ", e);
+                logger.warn("JWT token rejected for URI {}: {}", requestURI, e.getMessage());
             }
         } else {
-            logger.warn("Authorization header is missing or does not start with 'Bearer '. Access denied.");
+            logger.debug("Authorization header is missing or not a bearer token for URI: {}", requestURI);
         }
 
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            Optional<User> userOptional = userRepository.findByUsername(username);
+            Optional<AuthenticatedUser> userOptional = principalCache.get(username);
 
-            if (userOptional.isPresent() && jwtTokenUtil.isTokenValid(token, userOptional.get())) {
-                User user = userOptional.get();
-                logger.info("User found in repository: " + user.getUsername());
+            // The token was verified when the username was extracted from it.
+            if (userOptional.isPresent() && userOptional.get().active()) {
+                AuthenticatedUser user = userOptional.get();
 
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                         user, null, new ArrayList<>());
 
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                logger.info("Authentication set for user: " + user.getUsername());
+                logger.debug("Authentication set for user: {}", user.username());
             } else {
-                logger.warn("Token is invalid or user not found in the repository.");
-            }
-        } else {
-            if (username == null) {
-                logger.warn("Username is null after token extraction.");
-            }
-            if (SecurityContextHolder.getContext().getAuthentication() != null) {
-                logger.info("Security context already contains authentication for user.");
+                logger.warn("User not found or deactivated: {}", username);
             }
         }
 
-        logger.info("Proceeding with filter chain for URI: " + requestURI);
         filterChain.doFilter(request, response);
     }
 
-    private boolean isPublicEndpoint(String requestURI, List<String> endpoints) {
-        return endpoints.stream().anyMatch(endpoint -> pathMatcher.match(endpoint, requestURI));
-    }
-
 }
-
@@ -0,0 +1,138 @@
+package com.hhnatsiuk.mypastebin_backend.config;
+
+import com.hhnatsiuk.mypastebin_backend.service.LivePostHashes;
+import com.hhnatsiuk.mypastebin_backend.service.LoginAttemptThrottle;
+import com.hhnatsiuk.mypastebin_backend.service.PasswordHashingService;
+import com.hhnatsiuk.mypastebin_backend.service.PostContentCache;
+import com.hhnatsiuk.mypastebin_backend.service.PostExpirationScheduler;
+import com.hhnatsiuk.mypastebin_backend.service.PostPurgeService;
+import com.hhnatsiuk.mypastebin_backend.service.PrincipalCache;
+import com.hhnatsiuk.mypastebin_backend.service.RateLimiter;
+import com.hhnatsiuk.mypastebin_backend.service.RemoteHashGeneratorService;
+import com.hhnatsiuk.mypastebin_backend.service.ViewCountAggregator;
+import com.hhnatsiuk.mypastebin_backend.service.WriteBehindUploader;
+import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import java.util.Locale;
+
+/**
+ * Publishes the counters the services keep to Micrometer, next to the timers and distribution
+ * summaries recorded where the work is done. The defaults in {@code metrics.properties} expose
+ * them on {@code /actuator/prometheus} of the management port with histogram buckets for the
+ * timers; queries of every repository are timed by Spring Data as
+ * {@code spring.data.repository.invocations}.
+ */
+@Configuration
+@PropertySource("classpath:metrics.properties")
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder postContentCacheMetrics(PostContentCache cache) {
+        return registry -> {
+            FunctionCounter.builder("posts.content.cache.requests", cache, PostContentCache::getHeapHits)
+                    .tag("result", "heap-hit").register(registry);
+            FunctionCounter.builder("posts.content.cache.requests", cache, PostContentCache::getDiskHits)
+                    .tag("result", "disk-hit").register(registry);
+            FunctionCounter.builder("posts.content.cache.requests", cache, PostContentCache::getMisses)
+                    .tag("result", "miss").register(registry);
+            FunctionCounter.builder("posts.content.cache.evictions", cache, PostContentCache::getHeapEvictions)
+                    .tag("tier", "heap").register(registry);
+            FunctionCounter.builder("posts.content.cache.evictions", cache, PostContentCache::getDiskEvictions)
+                    .tag("tier", "disk").register(registry);
+            Gauge.builder("posts.content.cache.disk.size", cache, PostContentCache::getDiskSizeInBytes)
+                    .baseUnit("bytes").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder postLifecycleMetrics(PostExpirationScheduler scheduler,
+                                            PostPurgeService purgeService,
+                                            ViewCountAggregator viewCountAggregator,
+                                            LivePostHashes livePostHashes,
+                                            WriteBehindUploader uploader) {
+        return registry -> {
+            Gauge.builder("posts.known.hashes", livePostHashes, LivePostHashes::getSize)
+                    .register(registry);
+            Gauge.builder("posts.expiration.scheduled", scheduler, PostExpirationScheduler::getScheduledCount)
+                    .register(registry);
+            Gauge.builder("posts.expiration.leader", scheduler, s -> s.isLeader() ? 1 : 0)
+                    .register(registry);
+            FunctionCounter.builder("posts.expiration.expired", scheduler, PostExpirationScheduler::getExpiredCount)
+                    .register(registry);
+            FunctionCounter.builder("posts.cleanup.purged", purgeService, PostPurgeService::getPurgedPostCount)
+                    .description("Posts deleted by the scheduled cleanup").register(registry);
+            FunctionCounter.builder("posts.cleanup.deleted.objects", purgeService, PostPurgeService::getDeletedObjectCount)
+                    .register(registry);
+            FunctionCounter.builder("posts.cleanup.chunks", purgeService, PostPurgeService::getPurgedChunkCount)
+                    .tag("outcome", "success").register(registry);
+            FunctionCounter.builder("posts.cleanup.chunks", purgeService, PostPurgeService::getFailedChunkCount)
+                    .tag("outcome", "failure").register(registry);
+            Gauge.builder("posts.views.pending.posts", viewCountAggregator, ViewCountAggregator::getTrackedPostCount)
+                    .register(registry);
+            FunctionCounter.builder("posts.views.flushed", viewCountAggregator, ViewCountAggregator::getFlushedViewCount)
+                    .register(registry);
+            FunctionCounter.builder("posts.views.flush.failures", viewCountAggregator, ViewCountAggregator::getFlushFailureCount)
+                    .register(registry);
+            Gauge.builder("blobstore.uploads.pending", uploader, WriteBehindUploader::getPendingCount)
+                    .register(registry);
+            FunctionCounter.builder("blobstore.uploads", uploader, WriteBehindUploader::getUploadedCount)
+                    .tag("outcome", "success").register(registry);
+            FunctionCounter.builder("blobstore.uploads", uploader, WriteBehindUploader::getFailureCount)
+                    .tag("outcome", "failure").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder hashGeneratorMetrics(ObjectProvider<RemoteHashGeneratorService> hashGenerator) {
+        return registry -> hashGenerator.ifAvailable(generator -> {
+            Gauge.builder("hashgenerator.pool.size", generator, RemoteHashGeneratorService::getPoolSize)
+                    .register(registry);
+            FunctionCounter.builder("hashgenerator.served", generator, RemoteHashGeneratorService::getServedFromPoolCount)
+                    .tag("source", "pool").register(registry);
+            FunctionCounter.builder("hashgenerator.served", generator, RemoteHashGeneratorService::getServedDirectlyCount)
+                    .tag("source", "remote").register(registry);
+            FunctionCounter.builder("hashgenerator.served", generator, RemoteHashGeneratorService::getServedByFallbackCount)
+                    .tag("source", "fallback").register(registry);
+            FunctionCounter.builder("hashgenerator.pool.fetched", generator, RemoteHashGeneratorService::getFetchedCount)
+                    .register(registry);
+            FunctionCounter.builder("hashgenerator.pool.refill.failures", generator, RemoteHashGeneratorService::getRefillFailureCount)
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder securityMetrics(JwtTokenUtil jwtTokenUtil,
+                                       PrincipalCache principalCache,
+                                       PasswordHashingService passwordHashingService,
+                                       LoginAttemptThrottle loginAttemptThrottle,
+                                       RateLimiter rateLimiter) {
+        return registry -> {
+            Gauge.builder("jwt.verified.cache.size", jwtTokenUtil, JwtTokenUtil::getVerifiedTokenCount)
+                    .register(registry);
+            Gauge.builder("security.principal.cache.size", principalCache, PrincipalCache::getSize)
+                    .register(registry);
+            Gauge.builder("security.bcrypt.queued", passwordHashingService, PasswordHashingService::getQueuedCount)
+                    .register(registry);
+            Gauge.builder("security.bcrypt.active", passwordHashingService, PasswordHashingService::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("security.bcrypt.rejected", passwordHashingService, PasswordHashingService::getRejectedCount)
+                    .register(registry);
+            FunctionCounter.builder("security.login.throttled", loginAttemptThrottle, LoginAttemptThrottle::getThrottledCount)
+                    .register(registry);
+            for (RateLimiter.Policy policy : RateLimiter.Policy.values()) {
+                String name = policy.name().toLowerCase(Locale.ROOT);
+                FunctionCounter.builder("ratelimit.rejected", rateLimiter, limiter -> limiter.getRejectedCount(policy))
+                        .tag("policy", name).register(registry);
+                Gauge.builder("ratelimit.clients", rateLimiter, limiter -> limiter.getTrackedClientCount(policy))
+                        .tag("policy", name).register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,111 @@
+package com.hhnatsiuk.mypastebin_backend.config;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches request paths against the public endpoint patterns, compiled once. Patterns without
+ * wildcards go into a hash set, patterns of the form {@code /prefix/**} into a character trie that
+ * is walked along the path, and only the remaining patterns are handed to an {@link AntPathMatcher}.
+ * Exact and prefix matches do not allocate.
+ */
+final class PublicEndpointMatcher {
+
+    private static final String ANY_SUFFIX = "/**";
+
+    private final Set<String> exactPaths = new HashSet<>();
+    private final Node prefixes = new Node();
+    private final List<String> otherPatterns = new ArrayList<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    PublicEndpointMatcher(String patterns) {
+        for (String pattern : patterns.split(",")) {
+            pattern = pattern.trim();
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            if (!pathMatcher.isPattern(pattern)) {
+                exactPaths.add(pattern);
+            } else if (pattern.endsWith(ANY_SUFFIX) && !pathMatcher.isPattern(pattern.substring(0, pattern.length() - ANY_SUFFIX.length()))) {
+                prefixes.insert(pattern.substring(0, pattern.length() - ANY_SUFFIX.length()));
+            } else {
+                otherPatterns.add(pattern);
+            }
+        }
+    }
+
+    boolean matches(String path) {
+        if (exactPaths.contains(path) || prefixes.matchesPrefixOf(path)) {
+            return true;
+        }
+        for (int i = 0; i < otherPatterns.size(); i++) {
+            if (pathMatcher.match(otherPatterns.get(i), path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean prefixEnd;
+
+        private void insert(String prefix) {
+            Node node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.prefixEnd = true;
+        }
+
+        /**
+         * Like {@code /prefix/**} in an {@link AntPathMatcher}, a prefix matches the path itself
+         * and everything below it, but not paths that merely start with the same characters.
+         */
+        private boolean matchesPrefixOf(String path) {
+            Node node = this;
+            for (int i = 0; ; i++) {
+                if (node.prefixEnd && (i == path.length() || path.charAt(i) == '/')) {
+                    return true;
+                }
+                if (i == path.length()) {
+                    return false;
+                }
+                node = node.child(path.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+
+        private Node child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = key;
+            newChildren[insertAt] = new Node();
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertAt];
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.hhnatsiuk.mypastebin_backend.config;
+
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.service.RateLimiter;
+import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the {@link RateLimiter} policies to the post endpoints: creating posts, reading them
+ * and counting views. Clients are told apart by the user they are authenticated as, or by the
+ * user of a valid bearer token on endpoints that do not require one, and otherwise by their
+ * address. Requests over the limit are answered with 429 and a Retry-After header.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LogManager.getLogger(RateLimitFilter.class);
+
+    private static final String POSTS_PATH = "/api/posts";
+    private static final String VIEWS_SUFFIX = "/increment-views";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final RateLimiter rateLimiter;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final boolean enabled;
+
+    public RateLimitFilter(RateLimiter rateLimiter,
+                           JwtTokenUtil jwtTokenUtil,
+                           @Value("${ratelimit.enabled:true}") boolean enabled) {
+        this.rateLimiter = rateLimiter;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || policyOf(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        RateLimiter.Policy policy = policyOf(request);
+        long waitNanos = rateLimiter.tryAcquire(policy, clientKeyOf(request));
+        if (waitNanos > 0) {
+            long retryAfterSeconds = Math.max(1, -Math.floorDiv(-waitNanos, TimeUnit.SECONDS.toNanos(1)));
+            logger.debug("Rate limit of {} exceeded by {}", policy, request.getRemoteAddr());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Too many requests, try again later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private static RateLimiter.Policy policyOf(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith(POSTS_PATH) || (path.length() > POSTS_PATH.length() && path.charAt(POSTS_PATH.length()) != '/')) {
+            return null;
+        }
+        String method = request.getMethod();
+        if ("POST".equals(method)) {
+            return path.endsWith(VIEWS_SUFFIX) ? RateLimiter.Policy.VIEWS : RateLimiter.Policy.CREATE;
+        }
+        if ("GET".equals(method)) {
+            return RateLimiter.Policy.READ;
+        }
+        return null;
+    }
+
+    private String clientKeyOf(HttpServletRequest request) {
+        Optional<AuthenticatedUser> user = AuthenticatedUser.current();
+        if (user.isPresent()) {
+            return "user:" + user.get().username();
+        }
+        String authorizationHeader = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader != null && authorizationHeader.startsWith(BEARER_PREFIX)) {
+            try {
+                return "user:" + jwtTokenUtil.extractUsername(authorizationHeader.substring(BEARER_PREFIX.length()));
+            } catch (RuntimeException e) {
+                // An invalid token identifies nobody; fall back to the address.
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
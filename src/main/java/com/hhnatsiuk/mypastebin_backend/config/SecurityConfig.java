@@ -24,9 +24,24 @@ import static org.springframework.security.config.Customizer.withDefaults;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    /**
+     * The only actuator endpoint left open when actuator shares the application port.
+     */
+    private static final String HEALTH_URL = "/actuator/health";
+
     @Value("${app.security.permitted-urls}")
     private String[] permittedUrls;
 
+    /**
+     * Port of the separate management server of {@code metrics.properties}, whose endpoints the
+     * Prometheus scraper reads without authenticating; the port must not be reachable publicly.
+     */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final CustomOAuth2SuccessHandler customOAuth2SuccessHandler;
 
@@ -36,8 +51,8 @@ public class SecurityConfig {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.bcrypt.strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
@@ -52,6 +67,8 @@ public class SecurityConfig {
                 .cors(withDefaults())
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(permittedUrls).permitAll()
+                        .requestMatchers(HEALTH_URL).permitAll()
+                        .requestMatchers(request -> isManagementPort(request.getLocalPort())).permitAll()
                         .anyRequest().authenticated()
                 )
                 .oauth2Login(oauth2 -> oauth2
@@ -64,6 +81,10 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private boolean isManagementPort(int port) {
+        return managementPort > 0 && managementPort != serverPort && port == managementPort;
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
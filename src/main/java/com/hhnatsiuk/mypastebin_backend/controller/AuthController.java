@@ -4,14 +4,17 @@ import com.hhnatsiuk.mypastebin_backend.dto.LoginDTO;
 import com.hhnatsiuk.mypastebin_backend.response.LoginResponse;
 import com.hhnatsiuk.mypastebin_backend.dto.SignUpDTO;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
+import com.hhnatsiuk.mypastebin_backend.exception.TooManyRequestsException;
 import com.hhnatsiuk.mypastebin_backend.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -44,20 +47,57 @@ public class AuthController {
                             responseCode = "401",
                             description = "Invalid username or password",
                             content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many failed attempts or too many concurrent logins",
+                            content = @Content(mediaType = "application/json")
                     )
             }
     )
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginDTO loginDTO) {
+    public ResponseEntity<?> login(@RequestBody LoginDTO loginDTO, HttpServletRequest request) {
         try {
-            LoginResponse response = authService.login(loginDTO);
+            LoginResponse response = authService.login(loginDTO, request.getRemoteAddr());
             return ResponseEntity.ok().body(response);
+        } catch (TooManyRequestsException e) {
+            logger.warn("Login refused for username {}: {}", loginDTO.getUsername(), e.getMessage());
+            return tooManyRequests(e);
         } catch (RuntimeException e) {
             logger.warn("Failed login attempt for username: {}", loginDTO.getUsername());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid username or password");
         }
     }
 
+    @Operation(
+            summary = "Log out a user",
+            description = "Revokes the JWT token passed in the Authorization header. Revocations are held in memory by the instance "
+                    + "that handles the logout, so with several instances behind a load balancer the token is still accepted by the others "
+                    + "until it expires.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Successful logout"
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Invalid or already revoked token",
+                            content = @Content(mediaType = "application/json")
+                    )
+            }
+    )
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader("Authorization") String tokenHeader) {
+        try {
+            authService.logout(tokenHeader);
+            return ResponseEntity.noContent().build();
+        } catch (RuntimeException e) {
+            logger.warn("Failed logout attempt: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        }
+    }
+
+
     @Operation(
             summary = "Sign up a new user",
             description = "Registers a new user with the provided email, username, and password.",
@@ -71,6 +111,11 @@ public class AuthController {
                             responseCode = "400",
                             description = "User already exists with the given email or username",
                             content = @Content(mediaType = "application/json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Too many concurrent signups",
+                            content = @Content(mediaType = "application/json")
                     )
             }
     )
@@ -82,9 +127,18 @@ public class AuthController {
             User user = authService.signup(signUpDTO);
             logger.info("User successfully signed up with username: {}", user.getUsername());
             return ResponseEntity.status(HttpStatus.CREATED).body(user);
+        } catch (TooManyRequestsException e) {
+            logger.warn("Signup refused for username {}: {}", signUpDTO.getUsername(), e.getMessage());
+            return tooManyRequests(e);
         } catch (RuntimeException e) {
             logger.warn("Signup failed for email: {} or username: {}", signUpDTO.getEmail(), signUpDTO.getUsername());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("User already exists with the given email or username");
         }
     }
+
+    private static ResponseEntity<?> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
 }
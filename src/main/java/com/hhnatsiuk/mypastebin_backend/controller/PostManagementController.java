@@ -1,21 +1,33 @@
 package com.hhnatsiuk.mypastebin_backend.controller;
 
+import com.hhnatsiuk.mypastebin_backend.dto.CursorPage;
 import com.hhnatsiuk.mypastebin_backend.dto.PostDTO;
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
 import com.hhnatsiuk.mypastebin_backend.exception.NotFoundException;
 import com.hhnatsiuk.mypastebin_backend.exception.UnauthorizedException;
 import com.hhnatsiuk.mypastebin_backend.service.PostService;
+import com.hhnatsiuk.mypastebin_backend.service.TrendingPostsTracker;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -26,6 +38,8 @@ public class PostManagementController {
 
     private static final Logger logger = LogManager.getLogger(PostManagementController.class);
 
+    private static final int MAX_PREVIEW_KB = 1024;
+
     private final PostService postService;
 
     @Autowired
@@ -68,15 +82,198 @@ public class PostManagementController {
     }
 
 
+    @Operation(
+            summary = "Create a new post from a raw content stream",
+            description = "Creates a new post whose content is the request body. The body is streamed to storage without being buffered in memory.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "201",
+                            description = "Post created successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = PostDTO.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Unauthorized access"
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error"
+                    )
+            }
+    )
+    @PostMapping(value = "/raw", consumes = {MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<PostDTO> createRawPost(@RequestParam String title,
+                                                 @RequestParam(required = false) String category,
+                                                 @RequestParam String expirationDate,
+                                                 @RequestHeader(value = "Authorization", required = false) String tokenHeader,
+                                                 HttpServletRequest request) {
+        try {
+            PostDTO createdPostDTO = postService.createPostFromStream(title, category, expirationDate, request.getInputStream(), tokenHeader);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdPostDTO);
+        } catch (UnauthorizedException e) {
+            logger.error("Unauthorized access: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            logger.error("Error occurred while creating post from stream: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+    @Operation(
+            summary = "Retrieve the raw content of a post",
+            description = "Streams the content of a post as plain text straight from storage. Compressed pastes are sent still compressed when the client accepts their Content-Encoding. "
+                    + "The content is immutable: it carries a strong ETag and may be cached until the post expires. "
+                    + "A single byte range of the uncompressed content can be requested with the Range header.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Content streamed successfully",
+                            content = @Content(mediaType = "text/plain")
+                    ),
+                    @ApiResponse(
+                            responseCode = "206",
+                            description = "Requested range of the content streamed successfully",
+                            content = @Content(mediaType = "text/plain")
+                    ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Content matches the ETag in If-None-Match"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Post not found"
+                    ),
+                    @ApiResponse(
+                            responseCode = "416",
+                            description = "Requested range starts beyond the end of the content"
+                    )
+            }
+    )
+    @GetMapping("/{hash}/raw")
+    public void getRawPost(@PathVariable String hash,
+                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        Post post;
+        try {
+            post = postService.findPostByHash(hash);
+        } catch (NotFoundException e) {
+            logger.warn("Post not found: {}", e.getMessage());
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        // Ranges refer to the uncompressed content, so a ranged response is never encoded.
+        HttpRange range = requestedRange(request, post);
+        boolean encoded = range == null && postService.canServeEncoded(post, acceptEncoding);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(postService.getCacheLifetime(post))
+                .cachePublic().immutable().getHeaderValue());
+        if (post.getFileSize() != null) {
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        }
+        // Sets the ETag, and answers 304 without touching storage if the client has this content.
+        if (new ServletWebRequest(request, response).checkNotModified(postService.getContentEntityTag(post, encoded))) {
+            return;
+        }
+
+        response.setContentType("text/plain;charset=UTF-8");
+        if (range != null) {
+            streamRange(post, range, response);
+            return;
+        }
+        if (encoded) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, post.getContentEncoding());
+            if (post.getCompressedSize() != null) {
+                response.setContentLengthLong(post.getCompressedSize());
+            }
+        } else if (post.getFileSize() != null) {
+            response.setContentLengthLong(post.getFileSize());
+        }
+
+        long written = postService.streamPostContent(post, response.getOutputStream(), encoded);
+        if (written < 0) {
+            logger.warn("Content of post {} is missing in storage", hash);
+            response.reset();
+            response.sendError(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+
+    /**
+     * Returns the single byte range the client asked for, or {@code null} if the whole content is
+     * to be sent: when there is no valid Range header, when it lists several ranges, when the
+     * size of the content is unknown, or when If-Range names other content.
+     */
+    private HttpRange requestedRange(HttpServletRequest request, Post post) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || post.getFileSize() == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(postService.getContentEntityTag(post, false))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed Range header: {}", rangeHeader);
+            return null;
+        }
+    }
+
+    private void streamRange(Post post, HttpRange range, HttpServletResponse response) throws IOException {
+        long size = post.getFileSize();
+        long start = -1;
+        long end = -1;
+        try {
+            start = range.getRangeStart(size);
+            end = range.getRangeEnd(size);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Unsatisfiable range {} of post {}: {}", range, post.getHash(), e.getMessage());
+        }
+        // HttpRange does not check the start against the size, so a range starting past the end
+        // of the content would otherwise be sent as an empty 206.
+        if (start < 0 || start >= size) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        response.setContentLengthLong(end - start + 1);
+
+        long written = postService.streamPostContentRange(post, start, end - start + 1, response.getOutputStream());
+        if (written < 0) {
+            logger.warn("Content of post {} is missing in storage", post.getHash());
+            response.reset();
+            response.sendError(HttpStatus.NOT_FOUND.value());
+        }
+    }
+
+
     @Operation(
             summary = "Retrieve a post by hash",
-            description = "Fetches a post using its unique hash.",
+            description = "Fetches a post using its unique hash. With preview, only the first that many kilobytes of the content are returned and truncated tells whether any was left out. "
+                    + "The response carries a weak ETag that only changes with the post, so a revalidated response may show an older view count; "
+                    + "the current count is served by /api/posts/{hash}/views.",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Post retrieved successfully",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = PostDTO.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Post matches the ETag in If-None-Match"
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid preview size"
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Post not found"
@@ -88,10 +285,23 @@ public class PostManagementController {
             }
     )
     @GetMapping("/{hash}")
-    public ResponseEntity<PostDTO> getPost(@PathVariable String hash) {
+    public ResponseEntity<PostDTO> getPost(@PathVariable String hash,
+                                           @RequestParam(required = false) Integer preview,
+                                           WebRequest request) {
         try {
-            PostDTO postDTO = postService.getPostByHash(hash);
-            return ResponseEntity.ok(postDTO);
+            if (preview != null && (preview < 1 || preview > MAX_PREVIEW_KB)) {
+                return ResponseEntity.badRequest().build();
+            }
+            Integer previewBytes = preview != null ? preview * 1024 : null;
+
+            Post post = postService.findPostByHash(hash);
+            String etag = postService.getPostEntityTag(post, previewBytes);
+            if (request.checkNotModified(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+            }
+
+            PostDTO postDTO = postService.toPostDTO(post, previewBytes);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(postDTO);
         } catch (NotFoundException e) {
             logger.warn("Post not found: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -102,6 +312,38 @@ public class PostManagementController {
     }
 
 
+    @Operation(
+            summary = "Retrieve the view count of a post",
+            description = "Returns the current view count of a post. The response is not cached.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "View count retrieved successfully"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Post not found"
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error"
+                    )
+            }
+    )
+    @GetMapping("/{hash}/views")
+    public ResponseEntity<Long> getPostViews(@PathVariable String hash) {
+        try {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(postService.getPostViews(hash));
+        } catch (NotFoundException e) {
+            logger.warn("Post not found: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            logger.error("Error occurred while retrieving post views: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
     @Operation(
             summary = "Delete a post by hash",
             description = "Deletes a post using its unique hash.",
@@ -130,7 +372,7 @@ public class PostManagementController {
 
     @Operation(
             summary = "Retrieve recent posts",
-            description = "Fetches a list of the most recent posts.",
+            description = "Fetches a list of the most recent posts, optionally only those of one category.",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -144,9 +386,13 @@ public class PostManagementController {
             }
     )
     @GetMapping("/recent")
-    public ResponseEntity<List<PostDTO>> getRecentPosts() {
+    public ResponseEntity<List<PostDTO>> getRecentPosts(@RequestParam(defaultValue = "10") int limit,
+                                                        @RequestParam(required = false) String category) {
         try {
-            List<PostDTO> postDTOs = postService.getRecentPostsDTO();
+            if (limit < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            List<PostDTO> postDTOs = postService.getRecentPostsDTO(limit, category);
             return ResponseEntity.ok(postDTOs);
         } catch (Exception e) {
             logger.error("An error occurred while retrieving recent posts: {}", e.getMessage(), e);
@@ -155,6 +401,79 @@ public class PostManagementController {
     }
 
 
+    @Operation(
+            summary = "Page through recent posts",
+            description = "Fetches recent posts, newest first, one page at a time. Pass the nextCursor of the previous page to get the next one.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Recent posts retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Malformed cursor"
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error"
+                    )
+            }
+    )
+    @GetMapping("/recent/page")
+    public ResponseEntity<CursorPage<PostDTO>> getRecentPostsPage(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "10") int limit,
+                                                                  @RequestParam(required = false) String category) {
+        try {
+            return ResponseEntity.ok(postService.getRecentPostsPage(cursor, limit, category));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Malformed recent posts cursor: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("An error occurred while retrieving recent posts: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
+    @Operation(
+            summary = "Retrieve trending posts",
+            description = "Fetches the most viewed posts of the last hour or day, ranked by their approximate views within that window.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Trending posts retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = List.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Unknown window or invalid limit"
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error"
+                    )
+            }
+    )
+    @GetMapping("/trending")
+    public ResponseEntity<List<PostDTO>> getTrendingPosts(@RequestParam(defaultValue = "hour") String window,
+                                                          @RequestParam(defaultValue = "10") int limit) {
+        try {
+            if (limit < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            List<PostDTO> postDTOs = postService.getTrendingPostsDTO(TrendingPostsTracker.Window.parse(window), limit);
+            return ResponseEntity.ok(postDTOs);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown trending window: {}", window);
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("An error occurred while retrieving trending posts: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+
     @Operation(
             summary = "Increment post views",
             description = "Increments the view count for a post identified by its hash.",
@@ -163,6 +482,10 @@ public class PostManagementController {
                             responseCode = "204",
                             description = "Views incremented successfully"
                     ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Post not found"
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error"
@@ -174,6 +497,9 @@ public class PostManagementController {
         try {
             postService.incrementPostViews(hash);
             return ResponseEntity.noContent().build();
+        } catch (NotFoundException e) {
+            logger.warn("Post not found for views increment: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         } catch (Exception e) {
             logger.error("Error incrementing views for post with hash: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -1,10 +1,11 @@
 package com.hhnatsiuk.mypastebin_backend.controller;
 
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.dto.CursorPage;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
 import com.hhnatsiuk.mypastebin_backend.dto.ProfileDTO;
-import com.hhnatsiuk.mypastebin_backend.entity.Post;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
 import com.hhnatsiuk.mypastebin_backend.service.ProfileService;
-import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -13,13 +14,15 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.util.Optional;
 
 @RestController
 @Tag(name = "Profile Management", description = "Endpoints for managing user profiles")
@@ -28,11 +31,9 @@ public class ProfileController {
     private static final Logger logger = LoggerFactory.getLogger(ProfileController.class);
 
     private final ProfileService profileService;
-    private final JwtTokenUtil jwtTokenUtil;
 
-    public ProfileController(ProfileService profileService, JwtTokenUtil jwtTokenUtil) {
+    public ProfileController(ProfileService profileService) {
         this.profileService = profileService;
-        this.jwtTokenUtil = jwtTokenUtil;
     }
 
 
@@ -47,33 +48,57 @@ public class ProfileController {
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ProfileDTO.class))
                     ),
                     @ApiResponse(
-                            responseCode = "404",
-                            description = "User not found"
+                            responseCode = "401",
+                            description = "Not authenticated"
                     )
             }
     )
     @GetMapping("/api/profile")
-    public ResponseEntity<ProfileDTO> getProfile(@RequestHeader("Authorization") String tokenHeader) {
-        String token = jwtTokenUtil.extractTokenFromHeader(tokenHeader);
-        String username = jwtTokenUtil.extractUsername(token);
-
-        User user = profileService.getUserByUsername(username);
-        if (user == null) {
-            logger.warn("User not found with username: {}", username);
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<ProfileDTO> getProfile() {
+        Optional<AuthenticatedUser> current = AuthenticatedUser.current();
+        if (current.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
+        User user = profileService.getUser(current.get());
         logger.info("User found: {}", user.getUsername());
 
-        List<Post> posts = profileService.getUserPosts(user);
-
-        ProfileDTO profile = new ProfileDTO(user, posts);
+        ProfileDTO profile = profileService.getProfile(user);
         logger.info("ProfileDTO created for user: {}", user.getUsername());
 
         return ResponseEntity.ok(profile);
     }
 
 
+    @Operation(
+            summary = "Deactivate the currently logged-in user",
+            description = "Deactivates the account of the user identified by the JWT token and revokes all of the user's tokens.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "204",
+                            description = "Account deactivated"
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Not authenticated"
+                    )
+            }
+    )
+    @DeleteMapping("/api/profile")
+    public ResponseEntity<Void> deactivateProfile() {
+        Optional<AuthenticatedUser> current = AuthenticatedUser.current();
+        if (current.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        profileService.deactivateUser(current.get());
+        logger.info("User deactivated: {}", current.get().username());
+
+        return ResponseEntity.noContent().build();
+    }
+
+
     @Operation(
             summary = "Get the profile of a user by username",
             description = "Fetches the profile details and posts of a user by their username.",
@@ -96,10 +121,81 @@ public class ProfileController {
             return ResponseEntity.notFound().build();
         }
 
-        List<Post> posts = profileService.getUserPosts(user);
-        ProfileDTO profile = new ProfileDTO(user, posts);
+        ProfileDTO profile = profileService.getProfile(user);
 
         return ResponseEntity.ok(profile);
     }
 
+
+    @Operation(
+            summary = "Get a page of the currently logged-in user's posts",
+            description = "Fetches the user's posts, newest first. Pass the nextCursor of the previous page to get the next one.",
+            security = @SecurityRequirement(name = "Bearer Authentication"),
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Posts retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Malformed cursor"
+                    ),
+                    @ApiResponse(
+                            responseCode = "401",
+                            description = "Not authenticated"
+                    )
+            }
+    )
+    @GetMapping("/api/profile/posts")
+    public ResponseEntity<CursorPage<PostSummary>> getPosts(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit) {
+        Optional<AuthenticatedUser> current = AuthenticatedUser.current();
+        if (current.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return getPostsPage(profileService.getUserReference(current.get()), cursor, limit);
+    }
+
+
+    @Operation(
+            summary = "Get a page of a user's posts by username",
+            description = "Fetches the user's posts, newest first. Pass the nextCursor of the previous page to get the next one.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Posts retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Malformed cursor"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "User not found"
+                    )
+            }
+    )
+    @GetMapping("/api/profile/{username}/posts")
+    public ResponseEntity<CursorPage<PostSummary>> getPostsByUsername(@PathVariable("username") String username,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(required = false) Integer limit) {
+        User user = profileService.getUserByUsername(username);
+        if (user == null) {
+            logger.warn("User not found with username: {}", username);
+            return ResponseEntity.notFound().build();
+        }
+        return getPostsPage(user, cursor, limit);
+    }
+
+    private ResponseEntity<CursorPage<PostSummary>> getPostsPage(User user, String cursor, Integer limit) {
+        try {
+            return ResponseEntity.ok(profileService.getUserPosts(user, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Malformed posts cursor: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
 }
@@ -0,0 +1,29 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+import com.hhnatsiuk.mypastebin_backend.entity.User;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+/**
+ * Immutable snapshot of a user, used as the principal of JWT authenticated requests so they do
+ * not have to load the user entity again.
+ */
+public record AuthenticatedUser(Long id, String username, String email, boolean active) {
+
+    public static AuthenticatedUser of(User user) {
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getEmail(), !Boolean.FALSE.equals(user.getIsActive()));
+    }
+
+    /**
+     * Returns the user the current request was authenticated as, if any.
+     */
+    public static Optional<AuthenticatedUser> current() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user) {
+            return Optional.of(user);
+        }
+        return Optional.empty();
+    }
+}
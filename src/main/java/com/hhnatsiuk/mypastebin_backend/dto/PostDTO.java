@@ -11,5 +11,6 @@ public class PostDTO {
     private String expirationDate;
     private int views;
     private String content;
+    private boolean truncated;
     private Long fileSize;
 }
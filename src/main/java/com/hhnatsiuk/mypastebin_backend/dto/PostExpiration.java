@@ -0,0 +1,11 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of a post onto what the expiration scheduler needs.
+ */
+public interface PostExpiration {
+    String getHash();
+    OffsetDateTime getExpirationDate();
+}
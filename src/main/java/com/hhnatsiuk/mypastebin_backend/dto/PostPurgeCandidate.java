@@ -0,0 +1,11 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+/**
+ * Projection of a post onto what is needed to purge it, without loading its content.
+ */
+public interface PostPurgeCandidate {
+    Long getId();
+    String getHash();
+    String getContentDigest();
+    boolean isInline();
+}
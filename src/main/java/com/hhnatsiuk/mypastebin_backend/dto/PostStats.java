@@ -0,0 +1,10 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+/**
+ * Aggregates over the posts of a user.
+ */
+public interface PostStats {
+    long getPostCount();
+
+    long getTotalViews();
+}
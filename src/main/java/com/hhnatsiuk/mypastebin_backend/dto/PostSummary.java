@@ -0,0 +1,30 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Projection of a post onto the columns shown in post lists, without its content or its user.
+ */
+public interface PostSummary {
+    @JsonIgnore
+    Long getId();
+
+    String getHash();
+
+    String getTitle();
+
+    String getCategory();
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    OffsetDateTime getCreatedAt();
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    OffsetDateTime getExpirationDate();
+
+    Integer getViews();
+
+    Long getFileSize();
+}
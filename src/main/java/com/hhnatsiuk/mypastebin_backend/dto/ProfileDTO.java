@@ -1,26 +1,24 @@
 package com.hhnatsiuk.mypastebin_backend.dto;
 
-import com.hhnatsiuk.mypastebin_backend.entity.Post;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
 
 import java.util.List;
 
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
-public class ProfileDTO {
-    private String username;
-    private String email;
-    private Integer views;
-    private Integer rating;
-    private List<Post> posts;
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class ProfileDTO extends ProfileSummaryDTO {
+    private List<PostSummary> posts;
+    private String nextPostsCursor;
 
-    public ProfileDTO(User user, List<Post> posts) {
-        this.username = user.getUsername();
-        this.email = user.getEmail();
-        this.views = user.getViews();
-        this.rating = user.getRating();
-        this.posts = posts;
+    public ProfileDTO(User user, PostStats stats, CursorPage<PostSummary> posts) {
+        super(user, stats);
+        this.posts = posts.getItems();
+        this.nextPostsCursor = posts.getNextCursor();
     }
 
 }
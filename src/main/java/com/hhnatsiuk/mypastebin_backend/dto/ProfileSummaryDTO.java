@@ -0,0 +1,24 @@
+package com.hhnatsiuk.mypastebin_backend.dto;
+
+import com.hhnatsiuk.mypastebin_backend.entity.User;
+import lombok.Data;
+
+@Data
+public class ProfileSummaryDTO {
+    private String username;
+    private String email;
+    private Integer views;
+    private Integer rating;
+    private long postCount;
+    private long totalPostViews;
+
+    public ProfileSummaryDTO(User user, PostStats stats) {
+        this.username = user.getUsername();
+        this.email = user.getEmail();
+        this.views = user.getViews();
+        this.rating = user.getRating();
+        this.postCount = stats.getPostCount();
+        this.totalPostViews = stats.getTotalViews();
+    }
+
+}
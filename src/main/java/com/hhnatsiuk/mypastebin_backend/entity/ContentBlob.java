@@ -0,0 +1,43 @@
+package com.hhnatsiuk.mypastebin_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+
+@Entity
+@Table(name = "content_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentBlob {
+
+    @Id
+    @Column(length = 64)
+    private String digest;
+
+    @Column(name = "storage_key", nullable = false)
+    private String storageKey;
+
+    @Column(name = "reference_count", nullable = false)
+    private Long referenceCount;
+
+    @Column(name = "content_encoding")
+    private String contentEncoding;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "compressed_size")
+    private Long compressedSize;
+
+    @Column(name = "text_url")
+    private String textUrl;
+
+    @Column(name = "created_at", nullable = false)
+    private OffsetDateTime createdAt;
+}
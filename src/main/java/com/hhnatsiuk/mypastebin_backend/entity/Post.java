@@ -1,6 +1,7 @@
 package com.hhnatsiuk.mypastebin_backend.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,9 +9,15 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_hash", columnList = "hash", unique = true),
+        @Index(name = "idx_posts_user_created_at_id", columnList = "fk_user_id, created_at, id"),
+        @Index(name = "idx_posts_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_posts_expiration_date", columnList = "expiration_date")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -36,6 +43,21 @@ public class Post {
 
     private Long fileSize;
 
+    private String contentEncoding;
+
+    private Long compressedSize;
+
+    @Column(length = 64)
+    private String contentDigest;
+
+    private String storageKey;
+
+    // Loaded with the entity; queries for post lists select PostSummary projections instead.
+    @Lob
+    @JsonIgnore
+    @Column(columnDefinition = "BLOB")
+    private byte[] inlineContent;
+
     @Transient
     private String content;
 
@@ -45,6 +67,8 @@ public class Post {
 
     @PrePersist
     protected void onCreate() {
-        this.createdAt = OffsetDateTime.now();
+        // Truncated to the precision of the column, so keyset cursors taken from a freshly saved
+        // post compare equal to the stored value.
+        this.createdAt = OffsetDateTime.now().truncatedTo(ChronoUnit.MICROS);
     }
 }
@@ -0,0 +1,38 @@
+package com.hhnatsiuk.mypastebin_backend.repository;
+
+import com.hhnatsiuk.mypastebin_backend.entity.ContentBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+
+@Repository
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, String> {
+
+    @Modifying(clearAutomatically = true)
+    @Query("update ContentBlob b set b.referenceCount = b.referenceCount + 1 where b.digest = :digest")
+    int incrementReferences(@Param("digest") String digest);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update ContentBlob b set b.referenceCount = b.referenceCount - :count where b.digest = :digest")
+    int decrementReferences(@Param("digest") String digest, @Param("count") long count);
+
+    @Modifying
+    @Query("delete from ContentBlob b where b.digest = :digest and b.referenceCount <= 0")
+    int deleteIfUnreferenced(@Param("digest") String digest);
+
+    @Modifying(clearAutomatically = true)
+    @Query(value = "INSERT INTO content_blobs (digest, storage_key, reference_count, content_encoding, file_size, compressed_size, text_url, created_at) " +
+            "VALUES (:digest, :storageKey, 1, :contentEncoding, :fileSize, :compressedSize, :textUrl, :createdAt) " +
+            "ON DUPLICATE KEY UPDATE reference_count = reference_count + 1", nativeQuery = true)
+    int insertOrReference(@Param("digest") String digest,
+                          @Param("storageKey") String storageKey,
+                          @Param("contentEncoding") String contentEncoding,
+                          @Param("fileSize") Long fileSize,
+                          @Param("compressedSize") Long compressedSize,
+                          @Param("textUrl") String textUrl,
+                          @Param("createdAt") OffsetDateTime createdAt);
+}
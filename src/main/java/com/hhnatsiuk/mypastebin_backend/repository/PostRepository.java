@@ -1,19 +1,90 @@
 package com.hhnatsiuk.mypastebin_backend.repository;
 
+import com.hhnatsiuk.mypastebin_backend.dto.PostExpiration;
+import com.hhnatsiuk.mypastebin_backend.dto.PostPurgeCandidate;
+import com.hhnatsiuk.mypastebin_backend.dto.PostStats;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
 import com.hhnatsiuk.mypastebin_backend.entity.Post;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
+    // Lists are read as PostSummary projections, which leave out the inline content.
+
     Optional<Post> findByHash(String hash);
-    List<Post> findTop10ByOrderByCreatedAtDesc();
-    List<Post> findByExpirationDateBefore(OffsetDateTime currentDateTime);
+    Optional<PostExpiration> findExpirationByHash(String hash);
+    List<PostSummary> findByHashIn(Collection<String> hashes);
+    List<PostSummary> findAllByOrderByCreatedAtDescIdDesc(Pageable pageable);
+    List<PostExpiration> findByExpirationDateBetweenOrderByExpirationDateAsc(OffsetDateTime from, OffsetDateTime to, Pageable pageable);
     void deleteByHash(String hash);
-    List<Post> findByUser(User user);
+    List<PostSummary> findByUser(User user);
+
+    @Query("SELECT COUNT(p) AS postCount, COALESCE(SUM(p.views), 0) AS totalViews FROM Post p WHERE p.user = :user")
+    PostStats getStatsByUser(@Param("user") User user);
+
+    // Purging: candidates are read without their content, and rows are locked before they are deleted.
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.contentDigest AS contentDigest, " +
+            "CASE WHEN p.inlineContent IS NULL THEN false ELSE true END AS inline " +
+            "FROM Post p WHERE p.expirationDate < :before AND p.id > :afterId ORDER BY p.id")
+    List<PostPurgeCandidate> findExpiredAfterId(@Param("before") OffsetDateTime before,
+                                                @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.contentDigest AS contentDigest, " +
+            "CASE WHEN p.inlineContent IS NULL THEN false ELSE true END AS inline " +
+            "FROM Post p WHERE p.hash IN :hashes")
+    List<PostPurgeCandidate> findPurgeCandidatesByHashIn(@Param("hashes") Collection<String> hashes);
+
+    @Query(value = "SELECT id FROM posts WHERE id IN (:ids) FOR UPDATE", nativeQuery = true)
+    List<Long> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Keyset pagination over (createdAt, id), newest first: the first page and the page after a cursor.
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.title AS title, p.category AS category, " +
+            "p.createdAt AS createdAt, p.expirationDate AS expirationDate, p.views AS views, p.fileSize AS fileSize " +
+            "FROM Post p WHERE p.user = :user " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findSummariesByUser(@Param("user") User user, Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.title AS title, p.category AS category, " +
+            "p.createdAt AS createdAt, p.expirationDate AS expirationDate, p.views AS views, p.fileSize AS fileSize " +
+            "FROM Post p WHERE p.user = :user " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findSummariesByUserBefore(@Param("user") User user,
+                                                @Param("createdAt") OffsetDateTime createdAt,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.title AS title, p.category AS category, " +
+            "p.createdAt AS createdAt, p.expirationDate AS expirationDate, p.views AS views, p.fileSize AS fileSize " +
+            "FROM Post p WHERE p.expirationDate > :now " +
+            "AND (:category IS NULL OR p.category = :category) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findRecent(@Param("category") String category,
+                          @Param("now") OffsetDateTime now,
+                          Pageable pageable);
+
+    @Query("SELECT p.id AS id, p.hash AS hash, p.title AS title, p.category AS category, " +
+            "p.createdAt AS createdAt, p.expirationDate AS expirationDate, p.views AS views, p.fileSize AS fileSize " +
+            "FROM Post p WHERE p.expirationDate > :now " +
+            "AND (:category IS NULL OR p.category = :category) " +
+            "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) " +
+            "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findRecentBefore(@Param("category") String category,
+                                @Param("now") OffsetDateTime now,
+                                @Param("createdAt") OffsetDateTime createdAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
 }
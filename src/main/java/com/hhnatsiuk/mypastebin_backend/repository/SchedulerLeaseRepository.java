@@ -0,0 +1,24 @@
+package com.hhnatsiuk.mypastebin_backend.repository;
+
+import com.hhnatsiuk.mypastebin_backend.entity.SchedulerLease;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO scheduler_leases (name) VALUES (:name)", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select l from SchedulerLease l where l.name = :name")
+    Optional<SchedulerLease> findForUpdate(@Param("name") String name);
+}
@@ -1,6 +1,6 @@
 package com.hhnatsiuk.mypastebin_backend.response;
 
-import com.hhnatsiuk.mypastebin_backend.dto.ProfileDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.ProfileSummaryDTO;
 import lombok.Data;
 
 @Data
@@ -8,6 +8,6 @@ public class LoginResponse {
     private String token;
     private String tokenType = "Bearer";
     private int expiresIn;
-    private ProfileDTO user;
+    private ProfileSummaryDTO user;
 }
 
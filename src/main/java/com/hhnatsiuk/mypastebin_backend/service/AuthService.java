@@ -2,21 +2,17 @@ package com.hhnatsiuk.mypastebin_backend.service;
 
 import com.hhnatsiuk.mypastebin_backend.dto.LoginDTO;
 import com.hhnatsiuk.mypastebin_backend.response.LoginResponse;
-import com.hhnatsiuk.mypastebin_backend.dto.ProfileDTO;
 import com.hhnatsiuk.mypastebin_backend.dto.SignUpDTO;
-import com.hhnatsiuk.mypastebin_backend.entity.Post;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
-import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import com.hhnatsiuk.mypastebin_backend.exception.TooManyRequestsException;
 import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
 import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.OffsetDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -25,36 +21,81 @@ public class AuthService {
     private static final Logger logger = LogManager.getLogger(AuthService.class);
 
     private final UserRepository userRepository;
-    private final PostRepository postRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final ProfileService profileService;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginAttemptThrottle loginAttemptThrottle;
     private final JwtTokenUtil jwtTokenUtil;
+    private final PrincipalCache principalCache;
 
     @Autowired
-    public AuthService(UserRepository userRepository, PostRepository postRepository, PasswordEncoder passwordEncoder, JwtTokenUtil jwtTokenUtil) {
+    public AuthService(UserRepository userRepository, ProfileService profileService, PasswordHashingService passwordHashingService,
+                       LoginAttemptThrottle loginAttemptThrottle, JwtTokenUtil jwtTokenUtil, PrincipalCache principalCache) {
         this.userRepository = userRepository;
-        this.postRepository = postRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.profileService = profileService;
+        this.passwordHashingService = passwordHashingService;
+        this.loginAttemptThrottle = loginAttemptThrottle;
         this.jwtTokenUtil = jwtTokenUtil;
+        this.principalCache = principalCache;
     }
 
-    public LoginResponse login(LoginDTO loginDTO) {
+    /**
+     * Checks the credentials on the password hashing pool. Attempts are refused without hashing
+     * once the username has failed too often from the client address, or the address has, and
+     * the stored hash is replaced when it was made with a different cost than
+     * {@code security.bcrypt.strength}.
+     *
+     * @throws TooManyRequestsException if the attempt is throttled or the hashing pool is saturated
+     */
+    public LoginResponse login(LoginDTO loginDTO, String clientAddress) {
+        loginAttemptThrottle.checkAllowed(loginDTO.getUsername(), clientAddress);
+
         Optional<User> userOptional = userRepository.findByUsername(loginDTO.getUsername());
 
-        if (userOptional.isPresent()) {
+        // Google and deactivated accounts fail like wrong passwords, so that attempts on them are
+        // throttled too and the answer does not tell their state.
+        if (userOptional.isPresent() && canLogInWithPassword(userOptional.get())) {
             User user = userOptional.get();
-            if (Boolean.TRUE.equals(user.getOauth2User())) {
-                throw new RuntimeException("Please log in using Google");
-            }
-            if (user.getPassword() != null && passwordEncoder.matches(loginDTO.getPassword(), user.getPassword())) {
+            if (passwordHashingService.matches(loginDTO.getPassword(), user.getPassword())) {
+                loginAttemptThrottle.recordSuccess(loginDTO.getUsername(), clientAddress);
+                rehashIfNeeded(user, loginDTO.getPassword());
                 user.setLastLoginAt(OffsetDateTime.now());
                 userRepository.save(user);
                 return createLoginResponse(user);
             }
         }
 
+        loginAttemptThrottle.recordFailure(loginDTO.getUsername(), clientAddress);
         throw new RuntimeException("Invalid username or password");
     }
 
+    private static boolean canLogInWithPassword(User user) {
+        return !Boolean.TRUE.equals(user.getOauth2User())
+                && !Boolean.FALSE.equals(user.getIsActive())
+                && user.getPassword() != null;
+    }
+
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHashingService.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordHashingService.encode(rawPassword));
+            logger.debug("Rehashed the password of user: {}", user.getUsername());
+        } catch (TooManyRequestsException e) {
+            logger.debug("Hashing pool busy, the password of user {} is rehashed on a later login", user.getUsername());
+        }
+    }
+
+    /**
+     * Revokes the token in the Authorization header so it cannot be used again.
+     */
+    public void logout(String tokenHeader) {
+        String token = jwtTokenUtil.extractTokenFromHeader(tokenHeader);
+        String username = jwtTokenUtil.extractUsername(token);
+        jwtTokenUtil.revoke(token);
+        logger.debug("Revoked token of user: {}", username);
+    }
+
 
     public User signup(SignUpDTO signUpDTO) {
         logger.debug("Attempting to sign up a new user with email: {} and username: {}", signUpDTO.getEmail(), signUpDTO.getUsername());
@@ -69,12 +110,13 @@ public class AuthService {
         User user = User.builder()
                 .username(signUpDTO.getUsername())
                 .email(signUpDTO.getEmail())
-                .password(passwordEncoder.encode(signUpDTO.getPassword()))
+                .password(passwordHashingService.encode(signUpDTO.getPassword()))
                 .createdAt(OffsetDateTime.now())
                 .isActive(true)
                 .build();
 
         User savedUser = userRepository.save(user);
+        principalCache.invalidate(savedUser.getUsername());
         logger.debug("User with username: {} and email: {} successfully saved", savedUser.getUsername(), savedUser.getEmail());
 
         return savedUser;
@@ -83,13 +125,11 @@ public class AuthService {
 
     private LoginResponse createLoginResponse(User user) {
         String token = jwtTokenUtil.generateToken(user);
-        List<Post> userPosts = postRepository.findByUser(user);
-        ProfileDTO profileDTO = new ProfileDTO(user, userPosts);
 
         LoginResponse response = new LoginResponse();
         response.setToken(token);
         response.setExpiresIn(jwtTokenUtil.getExpirationTime());
-        response.setUser(profileDTO);
+        response.setUser(profileService.getProfileSummary(user));
 
         return response;
     }
@@ -0,0 +1,52 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+
+public interface BlobStore {
+
+    /**
+     * Stores the content under the given key and returns a link to the stored object.
+     */
+    String put(String key, byte[] content, String contentType);
+
+    /**
+     * Streams the content into the store in fixed-size chunks without buffering it whole.
+     */
+    String put(String key, InputStream content, String contentType) throws IOException;
+
+    /**
+     * Returns the whole content, or {@code null} if there is no object for the key.
+     */
+    byte[] get(String key);
+
+    /**
+     * Opens the content for sequential reading, or returns {@code null} if there is no object for
+     * the key.
+     */
+    InputStream openStream(String key) throws IOException;
+
+    /**
+     * Copies the content into the target channel and returns the number of bytes written,
+     * or {@code -1} if there is no object for the key.
+     */
+    long stream(String key, WritableByteChannel target) throws IOException;
+
+    /**
+     * Copies at most {@code length} bytes of the content, starting at {@code offset}, into the
+     * target channel without reading the rest of the object. Returns the number of bytes written,
+     * or {@code -1} if there is no object for the key.
+     */
+    long streamRange(String key, long offset, long length, WritableByteChannel target) throws IOException;
+
+    /**
+     * Builds the link to an object from its key alone, without contacting the store.
+     */
+    String urlOf(String key);
+
+    boolean delete(String key);
+
+    void batchDelete(Collection<String> keys);
+}
@@ -0,0 +1,151 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.entity.ContentBlob;
+import com.hhnatsiuk.mypastebin_backend.repository.ContentBlobRepository;
+import jakarta.transaction.Transactional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reference counting for content-addressed paste bodies. Identical bodies share one stored
+ * object, which is only deleted when the last post referencing it goes away, and only after the
+ * transaction that dropped the last reference has committed.
+ * <p>
+ * Every upload is stored under a key of its own, the hash of the post it was uploaded for, so a
+ * body that is uploaded again while its previous copy is being deleted never shares that copy's
+ * object.
+ */
+@Service
+public class ContentBlobService {
+
+    private static final Logger logger = LogManager.getLogger(ContentBlobService.class);
+
+    private final ContentBlobRepository contentBlobRepository;
+    private final BlobStore blobStore;
+    private final PostContentCache postContentCache;
+    private final WriteBehindUploader writeBehindUploader;
+
+    public ContentBlobService(ContentBlobRepository contentBlobRepository, BlobStore blobStore,
+                              PostContentCache postContentCache, WriteBehindUploader writeBehindUploader) {
+        this.contentBlobRepository = contentBlobRepository;
+        this.blobStore = blobStore;
+        this.postContentCache = postContentCache;
+        this.writeBehindUploader = writeBehindUploader;
+    }
+
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Adds a reference to an already stored body, if there is one.
+     */
+    @Transactional
+    public Optional<ContentBlob> reference(String digest) {
+        if (contentBlobRepository.incrementReferences(digest) == 0) {
+            return Optional.empty();
+        }
+        logger.debug("Content {} already stored, reusing it", digest);
+        return contentBlobRepository.findById(digest);
+    }
+
+    /**
+     * Registers a freshly uploaded body. If another upload of the same body won the race, the
+     * existing record is referenced instead and returned, and the caller's upload is redundant.
+     */
+    @Transactional
+    public ContentBlob register(ContentBlob blob) {
+        contentBlobRepository.insertOrReference(blob.getDigest(), blob.getStorageKey(), blob.getContentEncoding(),
+                blob.getFileSize(), blob.getCompressedSize(), blob.getTextUrl(), OffsetDateTime.now());
+        return contentBlobRepository.findById(blob.getDigest())
+                .orElseThrow(() -> new IllegalStateException("Content " + blob.getDigest() + " vanished after registration"));
+    }
+
+    /**
+     * Drops references and deletes the stored body once nothing refers to it. The object is
+     * deleted after the transaction commits, so a rollback that brings the rows back also finds
+     * the object in place.
+     */
+    @Transactional
+    public void release(String digest, long count) {
+        unreference(digest, count).ifPresent(storageKey -> {
+            deleteAfterCommit(List.of(storageKey));
+            logger.debug("Content {} is no longer referenced and will be deleted", digest);
+        });
+    }
+
+    /**
+     * Drops references of many bodies at once, {@code counts} mapping each digest to the number of
+     * references to drop, and returns the storage keys of the bodies nothing refers to anymore.
+     * The caller deletes those objects with {@link #deleteStoredObjects} once its transaction has
+     * committed.
+     */
+    @Transactional
+    public List<String> releaseAll(Map<String, Long> counts) {
+        List<String> unreferencedKeys = new ArrayList<>();
+        counts.forEach((digest, count) -> unreference(digest, count).ifPresent(unreferencedKeys::add));
+        return unreferencedKeys;
+    }
+
+    private Optional<String> unreference(String digest, long count) {
+        contentBlobRepository.decrementReferences(digest, count);
+        Optional<ContentBlob> blob = contentBlobRepository.findById(digest);
+        if (blob.isEmpty() || blob.get().getReferenceCount() > 0) {
+            return Optional.empty();
+        }
+        String storageKey = blob.get().getStorageKey();
+        contentBlobRepository.deleteIfUnreferenced(digest);
+        return Optional.of(storageKey);
+    }
+
+    /**
+     * Deletes the stored objects once the current transaction has committed, or right away when
+     * there is no transaction.
+     */
+    public void deleteAfterCommit(Collection<String> storageKeys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteStoredObjects(storageKeys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteStoredObjects(storageKeys);
+            }
+        });
+    }
+
+    /**
+     * Deletes the stored objects together with their pending uploads and cached copies. Objects
+     * that cannot be deleted are only logged: nothing refers to them anymore.
+     */
+    public void deleteStoredObjects(Collection<String> storageKeys) {
+        if (storageKeys.isEmpty()) {
+            return;
+        }
+        for (String storageKey : storageKeys) {
+            writeBehindUploader.discard(storageKey);
+            postContentCache.invalidate(storageKey);
+        }
+        try {
+            if (storageKeys.size() == 1) {
+                blobStore.delete(storageKeys.iterator().next());
+            } else {
+                blobStore.batchDelete(storageKeys);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to delete {} unreferenced objects, they are left orphaned: {}", storageKeys.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression stage of the storage pipeline. The name doubles as the HTTP content-coding token,
+ * so stored bytes can be served as-is to clients that accept it.
+ */
+public interface ContentCodec {
+
+    String getName();
+
+    OutputStream encode(OutputStream target) throws IOException;
+
+    InputStream decode(InputStream source) throws IOException;
+
+    default String getStoredContentType() {
+        return "application/" + getName();
+    }
+}
@@ -0,0 +1,85 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Component
+public class ContentCodecRegistry {
+
+    private final Map<String, ContentCodec> codecs;
+    private final ContentCodec defaultCodec;
+
+    public ContentCodecRegistry(List<ContentCodec> codecs,
+                                @Value("${storage.compression.codec:gzip}") String defaultCodecName) {
+        this.codecs = codecs.stream().collect(Collectors.toMap(ContentCodec::getName, Function.identity()));
+        this.defaultCodec = forName(defaultCodecName);
+    }
+
+    public ContentCodec getDefault() {
+        return defaultCodec;
+    }
+
+    /**
+     * Resolves the codec a post was stored with; posts written before compression existed have none.
+     */
+    public ContentCodec forName(String name) {
+        if (name == null) {
+            return codecs.get(IdentityContentCodec.NAME);
+        }
+        ContentCodec codec = codecs.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown content codec: " + name);
+        }
+        return codec;
+    }
+
+    public static boolean isIdentity(ContentCodec codec) {
+        return IdentityContentCodec.NAME.equals(codec.getName());
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header allows the given content-coding. The q-value given
+     * for the coding itself decides; {@code *} only applies to codings the header does not name.
+     */
+    public static boolean isAccepted(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double explicitQuality = null;
+        Double wildcardQuality = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String token = parts[0].trim();
+            if (token.equalsIgnoreCase(coding)) {
+                explicitQuality = qualityOf(parts);
+            } else if (token.equals("*")) {
+                wildcardQuality = qualityOf(parts);
+            }
+        }
+        Double quality = explicitQuality != null ? explicitQuality : wildcardQuality;
+        return quality != null && quality > 0;
+    }
+
+    /**
+     * The q-value of an Accept-Encoding entry, {@code 1} if it has none and {@code 0} if it is
+     * malformed.
+     */
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String[] parameter = parts[i].split("=", 2);
+            if (parameter.length == 2 && parameter[0].trim().equalsIgnoreCase("q")) {
+                try {
+                    return Double.parseDouble(parameter[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
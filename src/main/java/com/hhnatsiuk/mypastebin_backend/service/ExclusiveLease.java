@@ -0,0 +1,81 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+
+/**
+ * Claims something only one node of the cluster may have, such as a snowflake node id, through a
+ * {@link SchedulerLeaseService} lease that its holder renews for as long as it runs. The lease
+ * counts as held until its TTL has passed since the last successful renewal.
+ */
+final class ExclusiveLease {
+
+    private static final Logger logger = LogManager.getLogger(ExclusiveLease.class);
+
+    private static final long CLAIM_RETRY_MILLIS = 1000;
+
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final String name;
+    private final String description;
+    private final Duration ttl;
+    private volatile long heldUntilNanos;
+
+    /**
+     * @param description what the lease stands for, as it appears in log and error messages
+     */
+    ExclusiveLease(SchedulerLeaseService schedulerLeaseService, String name, String description, Duration ttl) {
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.name = name;
+        this.description = description;
+        this.ttl = ttl;
+        this.heldUntilNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes the lease, waiting at most one TTL for a lease left behind by a restarted node to
+     * lapse.
+     *
+     * @throws IllegalStateException if another node keeps holding the lease
+     */
+    void claim() {
+        long deadline = System.currentTimeMillis() + ttl.toMillis() + CLAIM_RETRY_MILLIS;
+        while (!tryRenew()) {
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException(description + " is in use by another node");
+            }
+            try {
+                Thread.sleep(CLAIM_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while claiming " + description, e);
+            }
+        }
+        logger.info("Claimed {}", description);
+    }
+
+    void renew() {
+        try {
+            if (!tryRenew()) {
+                logger.error("{} has been taken over by another node", description);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to renew the lease on {}: {}", description, e.getMessage());
+        }
+    }
+
+    boolean isHeld() {
+        return System.nanoTime() - heldUntilNanos < 0;
+    }
+
+    private boolean tryRenew() {
+        long now = System.nanoTime();
+        if (schedulerLeaseService.tryAcquire(name, ttl)) {
+            heldUntilNanos = now + ttl.toNanos();
+            return true;
+        }
+        heldUntilNanos = now;
+        return false;
+    }
+}
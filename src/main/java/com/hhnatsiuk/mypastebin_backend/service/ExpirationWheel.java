@@ -0,0 +1,135 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of post expirations. The lowest level has {@code wheelSize} slots of
+ * one tick each; every further level has as many slots, each as wide as the whole level below,
+ * and is only created once a deadline lies beyond the levels that exist. Entries of a higher
+ * level are moved down when the clock reaches their slot, so scheduling and expiring are O(1)
+ * however many posts are waiting.
+ * <p>
+ * Deadlines fire on the first tick at or after them, never before. Not thread-safe.
+ */
+final class ExpirationWheel {
+
+    private final int wheelSize;
+    private final Map<String, Long> deadlines = new HashMap<>();
+    private final List<Level> levels = new ArrayList<>();
+
+    ExpirationWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.wheelSize = wheelSize;
+        levels.add(new Level(tickMillis, startMillis, true));
+    }
+
+    /**
+     * Schedules the hash to expire at the deadline. Returns {@code false} if the deadline has
+     * already passed, in which case nothing is scheduled.
+     */
+    boolean schedule(String hash, long deadline) {
+        if (deadlines.containsKey(hash)) {
+            return true;
+        }
+        if (!add(0, hash, deadline)) {
+            return false;
+        }
+        deadlines.put(hash, deadline);
+        return true;
+    }
+
+    /**
+     * Moves the clock forward to {@code now} and hands every hash whose deadline it passed to the consumer.
+     */
+    void advance(long now, Consumer<String> expired) {
+        Level root = levels.get(0);
+        while (root.currentTime + root.tickMillis <= now) {
+            root.currentTime += root.tickMillis;
+            root.drain(root.currentTime).keySet().forEach(hash -> fire(hash, expired));
+
+            // Upper levels are drained after the lowest one, whose current slot now stands for a
+            // full turn ahead, and top-down, so that whatever they hand down lands in a slot that
+            // is still to come. Handed down entries are placed from the lowest level again.
+            for (int i = levels.size() - 1; i > 0; i--) {
+                Level level = levels.get(i);
+                if (root.currentTime % level.tickMillis == 0) {
+                    level.currentTime = root.currentTime;
+                    level.drain(root.currentTime).forEach((hash, deadline) -> {
+                        if (!add(0, hash, deadline)) {
+                            fire(hash, expired);
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    private void fire(String hash, Consumer<String> expired) {
+        deadlines.remove(hash);
+        expired.accept(hash);
+    }
+
+    private boolean add(int levelIndex, String hash, long deadline) {
+        Level level = levels.get(levelIndex);
+        long slot = level.slotOf(deadline);
+        if (slot <= level.currentTime) {
+            if (levelIndex == 0) {
+                return false;
+            }
+            slot = level.currentTime + level.tickMillis;
+        }
+        if (slot - level.currentTime <= level.intervalMillis) {
+            level.bucket(slot).put(hash, deadline);
+            return true;
+        }
+        if (levelIndex + 1 == levels.size()) {
+            Level root = levels.get(0);
+            levels.add(new Level(level.intervalMillis, root.currentTime, false));
+        }
+        return add(levelIndex + 1, hash, deadline);
+    }
+
+    private final class Level {
+        private final long tickMillis;
+        private final long intervalMillis;
+        private final boolean roundUp;
+        private final List<Map<String, Long>> buckets = new ArrayList<>(wheelSize);
+        private long currentTime;
+
+        private Level(long tickMillis, long startMillis, boolean roundUp) {
+            this.tickMillis = tickMillis;
+            this.intervalMillis = tickMillis * wheelSize;
+            this.roundUp = roundUp;
+            this.currentTime = Math.floorDiv(startMillis, tickMillis) * tickMillis;
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new HashMap<>());
+            }
+        }
+
+        /**
+         * The lowest level rounds deadlines up so they never fire early; upper levels round down
+         * so their entries are handed down in time to fire on the right tick.
+         */
+        private long slotOf(long deadline) {
+            return (roundUp ? -Math.floorDiv(-deadline, tickMillis) : Math.floorDiv(deadline, tickMillis)) * tickMillis;
+        }
+
+        private Map<String, Long> bucket(long slot) {
+            return buckets.get((int) Math.floorMod(slot / tickMillis, (long) wheelSize));
+        }
+
+        private Map<String, Long> drain(long slot) {
+            int index = (int) Math.floorMod(slot / tickMillis, (long) wheelSize);
+            Map<String, Long> drained = buckets.get(index);
+            buckets.set(index, new HashMap<>());
+            return drained;
+        }
+    }
+}
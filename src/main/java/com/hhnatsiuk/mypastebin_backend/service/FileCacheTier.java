@@ -0,0 +1,139 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Second cache tier: entries demoted from the heap are written to local files and read back
+ * through the page cache, so a disk hit costs a local read instead of a remote call. Files are
+ * not memory-mapped, so a file that is evicted or removed is gone from disk and address space
+ * at once and {@code maxBytes} bounds what the tier holds.
+ * <p>
+ * Files are written under a temporary name and moved into place, so a read never sees a
+ * partially written entry. A read that finds its file gone counts as a miss.
+ */
+class FileCacheTier {
+
+    private static final Logger logger = LogManager.getLogger(FileCacheTier.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Integer> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong tempFileCounter = new AtomicLong();
+    private long totalBytes;
+    private long evictions;
+
+    FileCacheTier(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        clearDirectory();
+    }
+
+    byte[] get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            return Files.readAllBytes(fileFor(key));
+        } catch (NoSuchFileException e) {
+            // Evicted or removed between the lookup and the read.
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read cache file for key {}: {}", key, e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    void put(String key, byte[] content) {
+        if (content.length > maxBytes) {
+            return;
+        }
+        Path file = fileFor(key);
+        Path temp = directory.resolve(file.getFileName() + "." + tempFileCounter.incrementAndGet() + TEMP_SUFFIX);
+        try {
+            Files.write(temp, content);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write cache file for key {}: {}", key, e.getMessage());
+            deleteQuietly(temp);
+            return;
+        }
+
+        synchronized (this) {
+            Integer previous = entries.put(key, content.length);
+            if (previous != null) {
+                totalBytes -= previous;
+            }
+            totalBytes += content.length;
+            evictOverflow();
+        }
+    }
+
+    void remove(String key) {
+        synchronized (this) {
+            Integer removed = entries.remove(key);
+            if (removed == null) {
+                return;
+            }
+            totalBytes -= removed;
+        }
+        deleteQuietly(fileFor(key));
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized long getSizeInBytes() {
+        return totalBytes;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Integer>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Integer> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evictions++;
+            deleteQuietly(fileFor(eldest.getKey()));
+        }
+    }
+
+    private Path fileFor(String key) {
+        String fileName = Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(fileName);
+    }
+
+    private void clearDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(this::deleteQuietly);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache file {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Local filesystem backend. Objects are sharded into two levels of directories named after
+ * the first characters of the key, and reads are served with {@link FileChannel#transferTo}.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.type", havingValue = "filesystem")
+public class FileSystemStorageService implements BlobStore {
+
+    private static final Logger logger = LogManager.getLogger(FileSystemStorageService.class);
+    private static final int SHARD_WIDTH = 2;
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private final Path rootDirectory;
+
+    public FileSystemStorageService(@Value("${storage.filesystem.root-dir:data/blobs}") String rootDirectory) throws IOException {
+        this.rootDirectory = Path.of(rootDirectory).toAbsolutePath();
+        Files.createDirectories(this.rootDirectory);
+        logger.info("Filesystem blob store initialized at {}", this.rootDirectory);
+    }
+
+    @Override
+    public String put(String key, byte[] content, String contentType) {
+        if (content == null) {
+            logger.error("File content is null for file: {}", key);
+            throw new IllegalArgumentException("Content cannot be null");
+        }
+
+        Path file = resolve(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(content);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    channel.force(false);
+                }
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store file " + key, e);
+        }
+
+        logger.info("File size of {} = {} bytes", key, content.length);
+        return file.toUri().toString();
+    }
+
+    @Override
+    public String put(String key, InputStream content, String contentType) throws IOException {
+        Path file = resolve(key);
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), key, ".tmp");
+        long written = 0;
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ReadableByteChannel source = Channels.newChannel(content);
+                ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        written += channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                channel.force(false);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        logger.info("File size of {} = {} bytes", key, written);
+        return file.toUri().toString();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        try {
+            return Files.readAllBytes(resolve(key));
+        } catch (NoSuchFileException e) {
+            logger.warn("File {} not found in {}", key, rootDirectory);
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read file " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream openStream(String key) throws IOException {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            logger.warn("File {} not found in {}", key, rootDirectory);
+            return null;
+        }
+    }
+
+    @Override
+    public long stream(String key, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        } catch (NoSuchFileException e) {
+            logger.warn("File {} not found in {}", key, rootDirectory);
+            return -1;
+        }
+    }
+
+    @Override
+    public long streamRange(String key, long offset, long length, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long end = Math.min(channel.size(), length > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + length);
+            long position = offset;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+            return Math.max(0, end - offset);
+        } catch (NoSuchFileException e) {
+            logger.warn("File {} not found in {}", key, rootDirectory);
+            return -1;
+        }
+    }
+
+    @Override
+    public String urlOf(String key) {
+        return resolve(key).toUri().toString();
+    }
+
+    @Override
+    public boolean delete(String key) {
+        try {
+            boolean deleted = Files.deleteIfExists(resolve(key));
+            if (deleted) {
+                logger.info("File {} successfully deleted from {}", key, rootDirectory);
+            } else {
+                logger.warn("File {} not found in {}", key, rootDirectory);
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete file " + key, e);
+        }
+    }
+
+    @Override
+    public void batchDelete(Collection<String> keys) {
+        keys.forEach(this::delete);
+    }
+
+    private Path resolve(String key) {
+        if (key.isEmpty() || key.contains("/") || key.contains("\\") || key.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        Path directory = rootDirectory;
+        for (int shard = 0; shard < 2 && key.length() > (shard + 1) * SHARD_WIDTH; shard++) {
+            directory = directory.resolve(key.substring(shard * SHARD_WIDTH, (shard + 1) * SHARD_WIDTH));
+        }
+        return directory.resolve(key);
+    }
+}
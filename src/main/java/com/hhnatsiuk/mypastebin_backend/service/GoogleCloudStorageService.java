@@ -1,32 +1,84 @@
 package com.hhnatsiuk.mypastebin_backend.service;
 
+import com.google.cloud.ReadChannel;
+import com.google.cloud.WriteChannel;
 import com.google.cloud.storage.BlobId;
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.BlobInfo;
 import com.google.cloud.storage.Storage;
-import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.google.cloud.storage.StorageBatch;
+import com.google.cloud.storage.StorageBatchResult;
+import com.google.cloud.storage.StorageException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
+/**
+ * Stores blobs in a Google Cloud Storage bucket. Every call to the bucket is timed under
+ * {@value #REQUESTS_METRIC}, tagged with the operation.
+ */
 @Service
-public class GoogleCloudStorageService {
+@ConditionalOnProperty(name = "storage.type", havingValue = "gcs", matchIfMissing = true)
+public class GoogleCloudStorageService implements BlobStore {
 
     private static final Logger logger = LogManager.getLogger(GoogleCloudStorageService.class);
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int BATCH_LIMIT = 100;
+    private static final String MEDIA_LINK_PREFIX = "https://storage.googleapis.com/download/storage/v1/b/";
+    static final String REQUESTS_METRIC = "blobstore.requests";
 
     private final Storage storage;
+    private final String bucketName;
+    private final MeterRegistry meterRegistry;
+    private final Timer createTimer;
+    private final Timer getTimer;
+    private final Timer readTimer;
+    private final Timer deleteTimer;
+    private final Timer batchDeleteTimer;
 
     @Autowired
-    public GoogleCloudStorageService(Storage storage) {
+    public GoogleCloudStorageService(Storage storage,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${storage.gcs.bucket-name:mypastebinbucket}") String bucketName) {
         this.storage = storage;
+        this.bucketName = bucketName;
+        this.meterRegistry = meterRegistry;
+        this.createTimer = requestTimer(meterRegistry, "create");
+        this.getTimer = requestTimer(meterRegistry, "get");
+        this.readTimer = requestTimer(meterRegistry, "read");
+        this.deleteTimer = requestTimer(meterRegistry, "delete");
+        this.batchDeleteTimer = requestTimer(meterRegistry, "batch-delete");
     }
 
-    private final String bucketName = "mypastebinbucket";
+    private static Timer requestTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder(REQUESTS_METRIC)
+                .description("Calls to the Google Cloud Storage bucket")
+                .tag("store", "gcs")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
 
-    public String uploadFile(byte[] content, String contentType, String fileName, Post post) {
+    @Override
+    public String put(String fileName, byte[] content, String contentType) {
         if (content == null) {
             logger.error("File content is null for file: {}", fileName);
             throw new IllegalArgumentException("Content cannot be null");
@@ -34,41 +86,197 @@ public class GoogleCloudStorageService {
 
         BlobId blobId = BlobId.of(bucketName, fileName);
         BlobInfo blobInfo = BlobInfo.newBuilder(blobId).setContentType(contentType).build();
-        storage.create(blobInfo, content);
+        Blob blob = createTimer.record(() -> storage.create(blobInfo, content));
 
-        Blob blob = storage.get(blobId);
-        String mediaLink = blob.getMediaLink();
+        String mediaLink = blob.getMediaLink() != null ? blob.getMediaLink() : urlOf(fileName);
         logger.debug("mediaLink of {} = {}", fileName, mediaLink);
+        logger.info("File size of {} = {} bytes", fileName, content.length);
+
+        return mediaLink;
+    }
+
+    @Override
+    public String put(String fileName, InputStream content, String contentType) throws IOException {
+        BlobId blobId = BlobId.of(bucketName, fileName);
+        BlobInfo blobInfo = BlobInfo.newBuilder(blobId).setContentType(contentType).build();
+        byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+        long written = 0;
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (WriteChannel writer = storage.writer(blobInfo)) {
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += writer.write(chunk);
+                }
+            }
+        } finally {
+            sample.stop(createTimer);
+        }
 
-        long fileSize = (long) content.length;
-        post.setFileSize(fileSize);
-        logger.info("File size of {} = {} bytes", fileName, fileSize);
+        String mediaLink = urlOf(fileName);
+        logger.debug("mediaLink of {} = {}", fileName, mediaLink);
+        logger.info("File size of {} = {} bytes", fileName, written);
 
         return mediaLink;
     }
 
-    public void deleteFile(String fileName) {
+    @Override
+    public byte[] get(String fileName) {
         BlobId blobId = BlobId.of(bucketName, fileName);
-        boolean deleted = storage.delete(blobId);
+        return getTimer.record(() -> {
+            Blob blob = storage.get(blobId);
+
+            if (blob != null && blob.exists()) {
+                return blob.getContent();
+            } else {
+                logger.warn("File {} not found in bucket {}", fileName, bucketName);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * The reader only fetches the object when it is first read, so the first chunk is read here to
+     * find out whether the object exists. The read is timed until the stream is closed.
+     */
+    @Override
+    public InputStream openStream(String fileName) throws IOException {
+        ByteBuffer firstChunk = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ReadChannel reader = storage.reader(BlobId.of(bucketName, fileName));
+        try {
+            reader.read(firstChunk);
+        } catch (StorageException | IOException e) {
+            reader.close();
+            sample.stop(readTimer);
+            if (e instanceof StorageException storageException && storageException.getCode() == 404) {
+                logger.warn("File {} not found in bucket {}", fileName, bucketName);
+                return null;
+            }
+            throw e;
+        }
+        firstChunk.flip();
+
+        InputStream content = new SequenceInputStream(
+                new ByteArrayInputStream(firstChunk.array(), 0, firstChunk.limit()),
+                Channels.newInputStream(reader));
+        return new FilterInputStream(content) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!closed) {
+                        closed = true;
+                        sample.stop(readTimer);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public long stream(String fileName, WritableByteChannel target) throws IOException {
+        BlobId blobId = BlobId.of(bucketName, fileName);
+        ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        long written = 0;
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (ReadChannel reader = storage.reader(blobId)) {
+            while (reader.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (StorageException e) {
+            if (e.getCode() == 404 && written == 0) {
+                logger.warn("File {} not found in bucket {}", fileName, bucketName);
+                return -1;
+            }
+            throw e;
+        } finally {
+            sample.stop(readTimer);
+        }
+        return written;
+    }
+
+    /**
+     * Only the requested bytes are downloaded: the reader is positioned at the offset and
+     * limited to the end of the range.
+     */
+    @Override
+    public long streamRange(String fileName, long offset, long length, WritableByteChannel target) throws IOException {
+        BlobId blobId = BlobId.of(bucketName, fileName);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(STREAM_BUFFER_SIZE, Math.max(1, length)));
+        long written = 0;
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (ReadChannel reader = storage.reader(blobId)) {
+            reader.seek(offset);
+            reader.limit(length > Long.MAX_VALUE - offset ? Long.MAX_VALUE : offset + length);
+            while (reader.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (StorageException e) {
+            if (e.getCode() == 404 && written == 0) {
+                logger.warn("File {} not found in bucket {}", fileName, bucketName);
+                return -1;
+            }
+            throw e;
+        } finally {
+            sample.stop(readTimer);
+        }
+        return written;
+    }
+
+    @Override
+    public String urlOf(String fileName) {
+        return MEDIA_LINK_PREFIX + bucketName + "/o/" + URLEncoder.encode(fileName, StandardCharsets.UTF_8) + "?alt=media";
+    }
+
+    @Override
+    public boolean delete(String fileName) {
+        BlobId blobId = BlobId.of(bucketName, fileName);
+        boolean deleted = deleteTimer.record(() -> storage.delete(blobId));
         if (deleted) {
             logger.info("File {} successfully deleted from bucket {}", fileName, bucketName);
         } else {
             logger.warn("File {} not found in bucket {}", fileName, bucketName);
         }
+        return deleted;
     }
 
-    public String downloadFile(String fileName) {
-        BlobId blobId = BlobId.of(bucketName, fileName);
-        Blob blob = storage.get(blobId);
+    @Override
+    public void batchDelete(Collection<String> fileNames) {
+        if (fileNames.isEmpty()) {
+            return;
+        }
 
-        if (blob != null && blob.exists()) {
-            byte[] content = blob.getContent();
-            String contentString = new String(content, StandardCharsets.UTF_8);
-            logger.debug("Downloaded content from file {}: {}", fileName, contentString);
-            return contentString;
-        } else {
-            logger.warn("File {} not found in bucket {}", fileName, bucketName);
-            return null;
+        int deleted = 0;
+        List<String> names = List.copyOf(fileNames);
+        for (int from = 0; from < names.size(); from += BATCH_LIMIT) {
+            StorageBatch batch = storage.batch();
+            List<StorageBatchResult<Boolean>> results = new ArrayList<>(BATCH_LIMIT);
+            for (String fileName : names.subList(from, Math.min(from + BATCH_LIMIT, names.size()))) {
+                results.add(batch.delete(BlobId.of(bucketName, fileName)));
+            }
+            batchDeleteTimer.record(batch::submit);
+            for (StorageBatchResult<Boolean> result : results) {
+                if (Boolean.TRUE.equals(result.get())) {
+                    deleted++;
+                }
+            }
         }
+        logger.info("Batch deleted {} of {} files from bucket {}", deleted, names.size(), bucketName);
     }
 }
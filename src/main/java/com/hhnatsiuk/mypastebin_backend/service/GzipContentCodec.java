@@ -0,0 +1,31 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+public class GzipContentCodec implements ContentCodec {
+
+    public static final String NAME = "gzip";
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream target) throws IOException {
+        return new GZIPOutputStream(target, BUFFER_SIZE);
+    }
+
+    @Override
+    public InputStream decode(InputStream source) throws IOException {
+        return new GZIPInputStream(source, BUFFER_SIZE);
+    }
+}
@@ -1,18 +1,9 @@
 package com.hhnatsiuk.mypastebin_backend.service;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+public interface HashGeneratorService {
 
-@Service
-public class HashGeneratorService {
-
-    @Value("${hashgenerator.url}")
-    private String hashGeneratorUrl;
-
-    private final RestTemplate restTemplate = new RestTemplate();
-
-    public String generateUniqueHash() {
-        return restTemplate.getForObject(hashGeneratorUrl, String.class);
-    }
+    /**
+     * Returns a short hash that no other post has been or will be given.
+     */
+    String generateUniqueHash();
 }
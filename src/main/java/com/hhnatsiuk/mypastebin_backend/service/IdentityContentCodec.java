@@ -0,0 +1,32 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+@Component
+public class IdentityContentCodec implements ContentCodec {
+
+    public static final String NAME = "identity";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream target) {
+        return target;
+    }
+
+    @Override
+    public InputStream decode(InputStream source) {
+        return source;
+    }
+
+    @Override
+    public String getStoredContentType() {
+        return "text/plain";
+    }
+}
@@ -0,0 +1,66 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+/**
+ * Hashes of posts known to exist, with their deadlines, so that views and other per-hash counters
+ * are only kept for live posts. Posts are added when they are created or read; other hashes are
+ * looked up with a projection on the hash index. Unknown hashes are not remembered, so the set
+ * stays bounded by {@code posts.known-hashes.max-size} whatever hashes clients send.
+ */
+@Component
+public class LivePostHashes {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final PostRepository postRepository;
+    private final Cache<String, Long> deadlines;
+
+    public LivePostHashes(PostRepository postRepository,
+                          @Value("${posts.known-hashes.max-size:100000}") long maxSize,
+                          @Value("${posts.known-hashes.ttl-ms:600000}") long ttlMillis) {
+        this.postRepository = postRepository;
+        this.deadlines = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+    }
+
+    public boolean isLive(String hash) {
+        Long deadline = deadlines.getIfPresent(hash);
+        if (deadline == null) {
+            deadline = postRepository.findExpirationByHash(hash)
+                    .map(expiration -> deadlineOf(expiration.getExpirationDate()))
+                    .orElse(null);
+            if (deadline == null) {
+                return false;
+            }
+            deadlines.put(hash, deadline);
+        }
+        return deadline > System.currentTimeMillis();
+    }
+
+    public void add(Post post) {
+        deadlines.put(post.getHash(), deadlineOf(post.getExpirationDate()));
+    }
+
+    public void remove(String hash) {
+        deadlines.invalidate(hash);
+    }
+
+    public long getSize() {
+        return deadlines.estimatedSize();
+    }
+
+    private static long deadlineOf(OffsetDateTime expirationDate) {
+        return expirationDate != null ? expirationDate.toInstant().toEpochMilli() : NO_DEADLINE;
+    }
+}
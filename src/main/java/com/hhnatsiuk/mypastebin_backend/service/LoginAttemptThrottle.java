@@ -0,0 +1,97 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hhnatsiuk.mypastebin_backend.exception.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts failed logins per username from each client address, and per client address, over a
+ * window of {@code security.login.throttle-window-ms}. Once either count reaches its limit, further
+ * attempts are refused before any password is hashed, until the window since the last failure has
+ * passed. The username count is kept per address so that failures from one client cannot lock the
+ * account for everyone else; guessing from many addresses is left to the per-address limit. A
+ * successful login clears the count of the username from that address.
+ */
+@Component
+public class LoginAttemptThrottle {
+
+    private final Cache<String, AtomicInteger> failuresByUsernameAndAddress;
+    private final Cache<String, AtomicInteger> failuresByAddress;
+    private final int maxFailuresPerUsername;
+    private final int maxFailuresPerAddress;
+    private final long retryAfterSeconds;
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    public LoginAttemptThrottle(@Value("${security.login.throttle-window-ms:900000}") long windowMillis,
+                                @Value("${security.login.max-failures-per-username:5}") int maxFailuresPerUsername,
+                                @Value("${security.login.max-failures-per-address:20}") int maxFailuresPerAddress,
+                                @Value("${security.login.throttle-max-size:100000}") long maxSize) {
+        this.failuresByUsernameAndAddress = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(windowMillis))
+                .maximumSize(maxSize)
+                .build();
+        this.failuresByAddress = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(windowMillis))
+                .maximumSize(maxSize)
+                .build();
+        this.maxFailuresPerUsername = maxFailuresPerUsername;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+        this.retryAfterSeconds = Math.max(1, windowMillis / 1000);
+    }
+
+    public void checkAllowed(String username, String address) {
+        if (reached(failuresByUsernameAndAddress, keyOf(username, address), maxFailuresPerUsername)
+                || reached(failuresByAddress, address, maxFailuresPerAddress)) {
+            throttled.incrementAndGet();
+            throw new TooManyRequestsException("Too many failed login attempts, try again later", retryAfterSeconds);
+        }
+    }
+
+    public void recordFailure(String username, String address) {
+        increment(failuresByUsernameAndAddress, keyOf(username, address));
+        increment(failuresByAddress, address);
+    }
+
+    public void recordSuccess(String username, String address) {
+        String key = keyOf(username, address);
+        if (key != null) {
+            failuresByUsernameAndAddress.invalidate(key);
+        }
+    }
+
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    private static boolean reached(Cache<String, AtomicInteger> failures, String key, int limit) {
+        if (key == null) {
+            return false;
+        }
+        AtomicInteger count = failures.getIfPresent(key);
+        return count != null && count.get() >= limit;
+    }
+
+    /**
+     * Re-puts the counter so the window restarts with every failure.
+     */
+    private static void increment(Cache<String, AtomicInteger> failures, String key) {
+        if (key == null) {
+            return;
+        }
+        AtomicInteger count = failures.get(key, k -> new AtomicInteger());
+        count.incrementAndGet();
+        failures.put(key, count);
+    }
+
+    private static String keyOf(String username, String address) {
+        return username != null ? username.toLowerCase(Locale.ROOT) + '@' + address : null;
+    }
+}
@@ -0,0 +1,336 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable write-ahead log of content that still has to reach the blob store. Records are appended
+ * to memory-mapped segment files and forced to disk before {@link #append} returns. A tombstone is
+ * appended and forced once a record is uploaded or discarded, and segments are deleted oldest-first as soon
+ * as nothing in them is pending, so a restart replays exactly the outstanding uploads.
+ */
+class PendingUploadLog {
+
+    private static final Logger logger = LogManager.getLogger(PendingUploadLog.class);
+
+    private static final int RECORD_MAGIC = 0x50415354;
+    private static final int TOMBSTONE = -1;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".wal";
+
+    static final class Entry {
+        private final long sequence;
+        private final String key;
+        private final String contentType;
+        private final Segment segment;
+        private final int payloadOffset;
+        private final int payloadLength;
+        private int attempts;
+        private long notBefore;
+
+        private Entry(long sequence, String key, String contentType, Segment segment, int payloadOffset, int payloadLength) {
+            this.sequence = sequence;
+            this.key = key;
+            this.contentType = contentType;
+            this.segment = segment;
+            this.payloadOffset = payloadOffset;
+            this.payloadLength = payloadLength;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int pending;
+        private boolean sealed;
+
+        private Segment(long id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Entry> pendingBySequence = new ConcurrentSkipListMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long nextSequence;
+
+    PendingUploadLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    synchronized void append(String key, String contentType, byte[] payload) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] typeBytes = contentType.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + keyBytes.length + typeBytes.length + payload.length;
+
+        Segment segment = segmentWithRoom(recordBytes);
+        int start = segment.position;
+        int payloadOffset = write(segment, keyBytes, typeBytes, payload, payload.length);
+        segment.buffer.force(start, recordBytes);
+
+        track(new Entry(nextSequence++, key, contentType, segment, payloadOffset, payload.length));
+    }
+
+    byte[] read(String key) {
+        Entry entry = index.get(key);
+        return entry != null ? read(entry) : null;
+    }
+
+    byte[] read(Entry entry) {
+        byte[] payload = new byte[entry.payloadLength];
+        entry.segment.buffer.duplicate().get(entry.payloadOffset, payload);
+        return payload;
+    }
+
+    List<Entry> pollBatch(int maxEntries, long now) {
+        List<Entry> batch = new ArrayList<>(maxEntries);
+        for (Entry entry : pendingBySequence.values()) {
+            if (batch.size() == maxEntries) {
+                break;
+            }
+            if (entry.notBefore <= now) {
+                batch.add(entry);
+            }
+        }
+        return batch;
+    }
+
+    void retryLater(Entry entry, long notBefore) {
+        entry.attempts++;
+        entry.notBefore = notBefore;
+    }
+
+    /**
+     * Marks an uploaded entry as done. Returns {@code false} if it was discarded while uploading.
+     */
+    synchronized boolean complete(Entry entry) throws IOException {
+        if (!index.remove(entry.key, entry)) {
+            return false;
+        }
+        untrack(entry);
+        appendTombstone(entry.key);
+        return true;
+    }
+
+    synchronized boolean discard(String key) throws IOException {
+        Entry entry = index.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        untrack(entry);
+        appendTombstone(key);
+        return true;
+    }
+
+    int getPendingCount() {
+        return index.size();
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    private void track(Entry entry) {
+        Entry previous = index.put(entry.key, entry);
+        if (previous != null) {
+            untrack(previous);
+        }
+        pendingBySequence.put(entry.sequence, entry);
+        entry.segment.pending++;
+    }
+
+    private void untrack(Entry entry) {
+        pendingBySequence.remove(entry.sequence);
+        entry.segment.pending--;
+        deleteDrainedSegments();
+    }
+
+    private void appendTombstone(String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int recordBytes = HEADER_BYTES + keyBytes.length;
+        Segment segment = segmentWithRoom(recordBytes);
+        int start = segment.position;
+        write(segment, keyBytes, new byte[0], new byte[0], TOMBSTONE);
+        // An unforced tombstone could be lost in a crash and the upload replayed after its content
+        // was deleted from the blob store.
+        segment.buffer.force(start, recordBytes);
+    }
+
+    private int write(Segment segment, byte[] keyBytes, byte[] typeBytes, byte[] payload, int payloadLength) {
+        CRC32 crc = new CRC32();
+        crc.update(keyBytes);
+        crc.update(typeBytes);
+        crc.update(payload);
+
+        MappedByteBuffer buffer = segment.buffer;
+        int position = segment.position;
+        buffer.putInt(position, RECORD_MAGIC);
+        buffer.putInt(position + 4, keyBytes.length);
+        buffer.putInt(position + 8, typeBytes.length);
+        buffer.putInt(position + 12, payloadLength);
+        buffer.putInt(position + 16, (int) crc.getValue());
+        position += HEADER_BYTES;
+        buffer.put(position, keyBytes);
+        position += keyBytes.length;
+        buffer.put(position, typeBytes);
+        position += typeBytes.length;
+        int payloadOffset = position;
+        buffer.put(position, payload);
+        segment.position = position + payload.length;
+        return payloadOffset;
+    }
+
+    private Segment segmentWithRoom(int recordBytes) throws IOException {
+        if (active != null && active.buffer.capacity() - active.position >= recordBytes) {
+            return active;
+        }
+        if (active != null) {
+            active.sealed = true;
+        }
+        long id = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+        Path path = directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+        active = new Segment(id, path, map(path, Math.max(segmentBytes, recordBytes)));
+        forceDirectory();
+        segments.put(id, active);
+        deleteDrainedSegments();
+        return active;
+    }
+
+    private void deleteDrainedSegments() {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.firstEntry().getValue();
+            if (!oldest.sealed || oldest.pending > 0) {
+                return;
+            }
+            segments.pollFirstEntry();
+            try {
+                Files.deleteIfExists(oldest.path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete drained log segment {}: {}", oldest.path, e.getMessage());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            Segment segment = new Segment(id, path, map(path, (int) Files.size(path)));
+            segments.put(id, segment);
+            replay(segment);
+            segment.sealed = true;
+        }
+        deleteDrainedSegments();
+
+        if (!index.isEmpty()) {
+            logger.info("Recovered {} pending uploads from {} log segments", index.size(), segments.size());
+        }
+    }
+
+    private void replay(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity() && buffer.getInt(position) == RECORD_MAGIC) {
+            int keyLength = buffer.getInt(position + 4);
+            int typeLength = buffer.getInt(position + 8);
+            int payloadLength = buffer.getInt(position + 12);
+            int storedCrc = buffer.getInt(position + 16);
+            int bodyLength = keyLength + typeLength + Math.max(payloadLength, 0);
+            if (keyLength < 0 || typeLength < 0 || position + HEADER_BYTES + bodyLength > buffer.capacity()) {
+                break;
+            }
+
+            byte[] keyBytes = new byte[keyLength];
+            byte[] typeBytes = new byte[typeLength];
+            byte[] payload = new byte[Math.max(payloadLength, 0)];
+            int offset = position + HEADER_BYTES;
+            buffer.get(offset, keyBytes);
+            buffer.get(offset + keyLength, typeBytes);
+            buffer.get(offset + keyLength + typeLength, payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(keyBytes);
+            crc.update(typeBytes);
+            crc.update(payload);
+            if ((int) crc.getValue() != storedCrc) {
+                logger.warn("Torn record at offset {} of log segment {}, ignoring the rest of it", position, segment.path);
+                break;
+            }
+
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            if (payloadLength == TOMBSTONE) {
+                Entry entry = index.remove(key);
+                if (entry != null) {
+                    pendingBySequence.remove(entry.sequence);
+                    entry.segment.pending--;
+                }
+            } else {
+                track(new Entry(nextSequence++, key, new String(typeBytes, StandardCharsets.UTF_8), segment,
+                        offset + keyLength + typeLength, payloadLength));
+            }
+            position = offset + bodyLength;
+        }
+        segment.position = position;
+    }
+
+    /**
+     * Makes a newly created segment file itself survive a crash, not just the records forced into it.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms cannot open or sync a directory; the records are still forced.
+            logger.debug("Failed to sync log directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
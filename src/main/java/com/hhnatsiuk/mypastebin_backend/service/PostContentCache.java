@@ -0,0 +1,160 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache for paste content. The heap tier is bounded by total byte size and uses
+ * Caffeine's frequency-aware eviction; entries it evicts are demoted to a file-backed disk tier.
+ * <p>
+ * Misses are loaded once per key: concurrent misses on the same key wait for the load already in
+ * flight instead of each calling the loader. The load runs outside Caffeine's compute, so a slow
+ * remote read does not block updates of other keys.
+ */
+@Component
+public class PostContentCache {
+
+    private static final Logger logger = LogManager.getLogger(PostContentCache.class);
+
+    private final Cache<String, byte[]> heapTier;
+    private final FileCacheTier diskTier;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> loadsInFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder heapHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder heapEvictions = new LongAdder();
+
+    public PostContentCache(@Value("${storage.cache.heap-max-bytes:67108864}") long heapMaxBytes,
+                            @Value("${storage.cache.disk-dir:${java.io.tmpdir}/mypastebin-cache}") String diskDirectory,
+                            @Value("${storage.cache.disk-max-bytes:1073741824}") long diskMaxBytes) throws IOException {
+        this.diskTier = new FileCacheTier(Path.of(diskDirectory), diskMaxBytes);
+        this.heapTier = Caffeine.newBuilder()
+                .maximumWeight(heapMaxBytes)
+                .weigher((String key, byte[] content) -> content.length)
+                .evictionListener((String key, byte[] content, RemovalCause cause) -> {
+                    if (key != null && content != null && cause.wasEvicted()) {
+                        heapEvictions.increment();
+                        diskTier.put(key, content);
+                    }
+                })
+                .build();
+        logger.info("Post content cache initialized: heap {} bytes, disk {} bytes at {}", heapMaxBytes, diskMaxBytes, diskDirectory);
+    }
+
+    public byte[] get(String key, Function<String, byte[]> loader) {
+        byte[] content = heapTier.getIfPresent(key);
+        if (content != null) {
+            heapHits.increment();
+            return content;
+        }
+
+        CompletableFuture<byte[]> load = new CompletableFuture<>();
+        CompletableFuture<byte[]> inFlight = loadsInFlight.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            content = load(key, loader);
+            load.complete(content);
+            return content;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadsInFlight.remove(key, load);
+        }
+    }
+
+    private byte[] load(String key, Function<String, byte[]> loader) {
+        // Another load may have finished between the heap lookup and taking over the key.
+        byte[] content = heapTier.getIfPresent(key);
+        if (content != null) {
+            heapHits.increment();
+            return content;
+        }
+
+        content = diskTier.get(key);
+        if (content != null) {
+            diskHits.increment();
+            heapTier.put(key, content);
+            return content;
+        }
+
+        misses.increment();
+        content = loader.apply(key);
+        if (content != null) {
+            heapTier.put(key, content);
+        }
+        return content;
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public byte[] getIfPresent(String key) {
+        byte[] content = heapTier.getIfPresent(key);
+        if (content != null) {
+            heapHits.increment();
+            return content;
+        }
+        content = diskTier.get(key);
+        if (content != null) {
+            diskHits.increment();
+        }
+        return content;
+    }
+
+    public void invalidate(String key) {
+        heapTier.invalidate(key);
+        diskTier.remove(key);
+    }
+
+    public long getHeapHits() {
+        return heapHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getHeapEvictions() {
+        return heapEvictions.sum();
+    }
+
+    public long getDiskEvictions() {
+        return diskTier.getEvictions();
+    }
+
+    public long getDiskSizeInBytes() {
+        return diskTier.getSizeInBytes();
+    }
+}
@@ -0,0 +1,191 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.dto.PostExpiration;
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when posts expire. Deadlines are kept in an {@link ExpirationWheel} that is filled
+ * lazily: every {@code expiration.load-interval-ms} the posts expiring within the next
+ * {@code expiration.load-horizon-ms} are loaded with a hash-and-deadline projection, and posts
+ * saved on this node inside the loaded horizon are added as they are created. Posts whose
+ * deadline has already passed, because another node missed them or a purge failed, are left to
+ * the backlog sweep that {@link #claimBacklogSweep()} hands out once per load interval.
+ * <p>
+ * Only the node holding the {@value #LEASE_NAME} lease runs the wheel, so replicas do not sweep
+ * the same posts.
+ */
+@Component
+public class PostExpirationScheduler {
+
+    private static final Logger logger = LogManager.getLogger(PostExpirationScheduler.class);
+
+    static final String LEASE_NAME = "post-expiration";
+
+    private final PostRepository postRepository;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long loadHorizonMillis;
+    private final long loadIntervalMillis;
+    private final int loadBatchSize;
+    private final Duration leaseTtl;
+
+    private ExpirationWheel wheel;
+    private long loadedUntil;
+    private long nextLoadAt;
+    private long leaseRenewAt;
+    private long nextBacklogSweepAt;
+
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    public PostExpirationScheduler(PostRepository postRepository,
+                                   SchedulerLeaseService schedulerLeaseService,
+                                   @Value("${expiration.tick-ms:1000}") long tickMillis,
+                                   @Value("${expiration.wheel-size:64}") int wheelSize,
+                                   @Value("${expiration.load-horizon-ms:300000}") long loadHorizonMillis,
+                                   @Value("${expiration.load-interval-ms:60000}") long loadIntervalMillis,
+                                   @Value("${expiration.load-batch-size:10000}") int loadBatchSize,
+                                   @Value("${expiration.lease-ttl-ms:30000}") long leaseTtlMillis) {
+        this.postRepository = postRepository;
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.loadHorizonMillis = loadHorizonMillis;
+        this.loadIntervalMillis = loadIntervalMillis;
+        this.loadBatchSize = loadBatchSize;
+        this.leaseTtl = Duration.ofMillis(leaseTtlMillis);
+    }
+
+    /**
+     * Returns the hashes of the posts that have expired since the last call. Returns nothing on
+     * nodes that do not hold the lease.
+     */
+    public synchronized List<String> pollExpired() {
+        long now = System.currentTimeMillis();
+        if (!holdsLease(now)) {
+            return List.of();
+        }
+
+        List<String> due = new ArrayList<>();
+        if (now >= nextLoadAt) {
+            load(now, due);
+        }
+        wheel.advance(now, due::add);
+        expired.addAndGet(due.size());
+        return due;
+    }
+
+    /**
+     * Adds a freshly saved post if its deadline falls inside the horizon that is already loaded;
+     * later deadlines are picked up by the load that covers them.
+     */
+    public synchronized void schedule(Post post) {
+        if (wheel == null || post.getExpirationDate() == null) {
+            return;
+        }
+        long deadline = post.getExpirationDate().toInstant().toEpochMilli();
+        if (deadline < loadedUntil) {
+            wheel.schedule(post.getHash(), deadline);
+        }
+    }
+
+    /**
+     * Returns {@code true} at most once per load interval, and only on the node holding the
+     * lease, to start a sweep of the posts that expired without being purged.
+     */
+    public synchronized boolean claimBacklogSweep() {
+        long now = System.currentTimeMillis();
+        if (wheel == null || now < nextBacklogSweepAt) {
+            return false;
+        }
+        nextBacklogSweepAt = now + loadIntervalMillis;
+        return true;
+    }
+
+    private boolean holdsLease(long now) {
+        if (now < leaseRenewAt) {
+            return wheel != null;
+        }
+        leaseRenewAt = now + leaseTtl.toMillis() / 3;
+
+        boolean held;
+        try {
+            held = schedulerLeaseService.tryAcquire(LEASE_NAME, leaseTtl);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to renew the '{}' lease: {}", LEASE_NAME, e.getMessage());
+            held = false;
+        }
+
+        if (held && wheel == null) {
+            wheel = new ExpirationWheel(tickMillis, wheelSize, now);
+            loadedUntil = now;
+            nextLoadAt = now;
+            nextBacklogSweepAt = now;
+            logger.info("Post expiration is now scheduled on this node");
+        } else if (!held && wheel != null) {
+            wheel = null;
+            logger.info("Post expiration lease lost, another node schedules expirations now");
+        }
+        return held;
+    }
+
+    private void load(long now, List<String> due) {
+        long until = now + loadHorizonMillis;
+        List<PostExpiration> expirations = postRepository.findByExpirationDateBetweenOrderByExpirationDateAsc(
+                OffsetDateTime.ofInstant(Instant.ofEpochMilli(loadedUntil), ZoneOffset.UTC),
+                OffsetDateTime.ofInstant(Instant.ofEpochMilli(until), ZoneOffset.UTC),
+                PageRequest.of(0, loadBatchSize));
+
+        for (PostExpiration expiration : expirations) {
+            if (!wheel.schedule(expiration.getHash(), expiration.getExpirationDate().toInstant().toEpochMilli())) {
+                due.add(expiration.getHash());
+            }
+        }
+        loaded.addAndGet(expirations.size());
+
+        long lastDeadline = expirations.isEmpty() ? loadedUntil
+                : expirations.get(expirations.size() - 1).getExpirationDate().toInstant().toEpochMilli();
+        if (expirations.size() == loadBatchSize && lastDeadline > loadedUntil) {
+            // More posts expire before the horizon than one load takes: cover what was loaded
+            // and continue from there on the next tick. A batch that does not move past its own
+            // start is left to the backlog sweep instead of being loaded again and again.
+            loadedUntil = lastDeadline;
+            nextLoadAt = now + tickMillis;
+        } else {
+            loadedUntil = until;
+            nextLoadAt = now + loadIntervalMillis;
+        }
+        logger.debug("Loaded {} post expirations up to {}", expirations.size(), Instant.ofEpochMilli(loadedUntil));
+    }
+
+    public synchronized int getScheduledCount() {
+        return wheel != null ? wheel.size() : 0;
+    }
+
+    public synchronized boolean isLeader() {
+        return wheel != null;
+    }
+
+    public long getLoadedCount() {
+        return loaded.get();
+    }
+
+    public long getExpiredCount() {
+        return expired.get();
+    }
+}
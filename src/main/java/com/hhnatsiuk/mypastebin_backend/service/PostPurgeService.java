@@ -0,0 +1,190 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.dto.PostPurgeCandidate;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes expired posts in chunks of {@code purge.chunk-size}. Posts are read as a projection
+ * without their content, and every chunk is purged in its own short transaction: the rows are
+ * locked, deleted with one statement and the content references they held are dropped per
+ * digest. Once that transaction has committed, the stored objects nothing refers to anymore are
+ * removed with one batch request. Memory and lock hold time therefore depend on the chunk size
+ * only, not on the size of the backlog.
+ */
+@Service
+public class PostPurgeService {
+
+    private static final Logger logger = LogManager.getLogger(PostPurgeService.class);
+    private static final String FILE_EXTENSION = ".txt";
+
+    private final PostRepository postRepository;
+    private final ContentBlobService contentBlobService;
+    private final ViewCountAggregator viewCountAggregator;
+    private final TrendingPostsTracker trendingPostsTracker;
+    private final RecentPostsFeed recentPostsFeed;
+    private final LivePostHashes livePostHashes;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int chunksPerSweepStep;
+
+    private OffsetDateTime sweepBefore;
+    private long sweepAfterId;
+
+    private final AtomicLong purgedPosts = new AtomicLong();
+    private final AtomicLong deletedObjects = new AtomicLong();
+    private final AtomicLong purgedChunks = new AtomicLong();
+    private final AtomicLong failedChunks = new AtomicLong();
+
+    public PostPurgeService(PostRepository postRepository,
+                            ContentBlobService contentBlobService,
+                            ViewCountAggregator viewCountAggregator,
+                            TrendingPostsTracker trendingPostsTracker,
+                            RecentPostsFeed recentPostsFeed,
+                            LivePostHashes livePostHashes,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${purge.chunk-size:100}") int chunkSize,
+                            @Value("${purge.chunks-per-sweep-step:20}") int chunksPerSweepStep) {
+        this.postRepository = postRepository;
+        this.contentBlobService = contentBlobService;
+        this.viewCountAggregator = viewCountAggregator;
+        this.trendingPostsTracker = trendingPostsTracker;
+        this.recentPostsFeed = recentPostsFeed;
+        this.livePostHashes = livePostHashes;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.chunksPerSweepStep = chunksPerSweepStep;
+    }
+
+    /**
+     * Purges the posts with the given hashes; hashes of posts that are already gone are ignored.
+     */
+    public void purge(Collection<String> hashes) {
+        List<String> pending = List.copyOf(hashes);
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<String> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            purgeChunk(postRepository.findPurgeCandidatesByHashIn(chunk));
+        }
+    }
+
+    public synchronized boolean isSweeping() {
+        return sweepBefore != null;
+    }
+
+    /**
+     * Pages through every post that expired before now, ordered by id, and purges it. A sweep
+     * is spread over several calls of at most {@code purge.chunks-per-sweep-step} chunks each,
+     * so a large backlog does not hold up the scheduler; the next call continues where the
+     * previous one stopped.
+     */
+    public synchronized void sweepExpired() {
+        if (sweepBefore == null) {
+            sweepBefore = OffsetDateTime.now();
+            sweepAfterId = 0;
+        }
+
+        for (int chunks = 0; chunks < chunksPerSweepStep; chunks++) {
+            List<PostPurgeCandidate> candidates =
+                    postRepository.findExpiredAfterId(sweepBefore, sweepAfterId, PageRequest.of(0, chunkSize));
+            if (!candidates.isEmpty()) {
+                sweepAfterId = candidates.get(candidates.size() - 1).getId();
+                purgeChunk(candidates);
+            }
+            if (candidates.size() < chunkSize) {
+                sweepBefore = null;
+                return;
+            }
+        }
+    }
+
+    private void purgeChunk(List<PostPurgeCandidate> candidates) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        try {
+            PurgedChunk chunk = transactionTemplate.execute(status -> deleteChunk(candidates));
+            // Objects are deleted once the rows are gone for good, never while a rollback could
+            // still bring back rows that point at them.
+            contentBlobService.deleteStoredObjects(chunk.unreferencedKeys());
+            deletedObjects.addAndGet(chunk.unreferencedKeys().size());
+
+            List<PostPurgeCandidate> purged = chunk.purged();
+            for (PostPurgeCandidate candidate : purged) {
+                livePostHashes.remove(candidate.getHash());
+                viewCountAggregator.discard(candidate.getHash());
+                trendingPostsTracker.remove(candidate.getHash());
+                recentPostsFeed.remove(candidate.getHash());
+            }
+            purgedPosts.addAndGet(purged.size());
+            purgedChunks.incrementAndGet();
+            logger.debug("Purged a chunk of {} expired posts", purged.size());
+        } catch (RuntimeException e) {
+            failedChunks.incrementAndGet();
+            logger.error("Failed to purge a chunk of {} expired posts, it will be retried: {}", candidates.size(), e.getMessage(), e);
+        }
+    }
+
+    private record PurgedChunk(List<PostPurgeCandidate> purged, List<String> unreferencedKeys) {
+    }
+
+    /**
+     * Only the rows this transaction managed to lock are purged, so a post deleted concurrently
+     * elsewhere does not release its content reference twice. Returns the purged posts and the
+     * keys of the objects nothing refers to anymore, which the caller deletes after commit.
+     */
+    private PurgedChunk deleteChunk(List<PostPurgeCandidate> candidates) {
+        Set<Long> locked = new HashSet<>(postRepository.lockByIdIn(candidates.stream().map(PostPurgeCandidate::getId).toList()));
+        List<PostPurgeCandidate> purged = candidates.stream().filter(candidate -> locked.contains(candidate.getId())).toList();
+        if (purged.isEmpty()) {
+            return new PurgedChunk(purged, List.of());
+        }
+
+        postRepository.deleteAllByIdInBatch(purged.stream().map(PostPurgeCandidate::getId).toList());
+
+        Map<String, Long> releasedReferences = new HashMap<>();
+        List<String> unreferencedKeys = new ArrayList<>();
+        for (PostPurgeCandidate candidate : purged) {
+            if (candidate.isInline()) {
+                continue;
+            }
+            if (candidate.getContentDigest() != null) {
+                releasedReferences.merge(candidate.getContentDigest(), 1L, Long::sum);
+            } else {
+                unreferencedKeys.add(candidate.getHash() + FILE_EXTENSION);
+            }
+        }
+        unreferencedKeys.addAll(contentBlobService.releaseAll(releasedReferences));
+        return new PurgedChunk(purged, unreferencedKeys);
+    }
+
+    public long getPurgedPostCount() {
+        return purgedPosts.get();
+    }
+
+    public long getDeletedObjectCount() {
+        return deletedObjects.get();
+    }
+
+    public long getPurgedChunkCount() {
+        return purgedChunks.get();
+    }
+
+    public long getFailedChunkCount() {
+        return failedChunks.get();
+    }
+}
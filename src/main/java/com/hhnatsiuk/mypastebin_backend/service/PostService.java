@@ -1,26 +1,50 @@
 package com.hhnatsiuk.mypastebin_backend.service;
 
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.dto.CursorPage;
 import com.hhnatsiuk.mypastebin_backend.dto.PostDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+import com.hhnatsiuk.mypastebin_backend.entity.ContentBlob;
 import com.hhnatsiuk.mypastebin_backend.entity.Post;
-import com.hhnatsiuk.mypastebin_backend.entity.User;
 import com.hhnatsiuk.mypastebin_backend.exception.NotFoundException;
 import com.hhnatsiuk.mypastebin_backend.exception.UnauthorizedException;
 import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
 import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
+import com.hhnatsiuk.mypastebin_backend.utils.CountingInputStream;
+import com.hhnatsiuk.mypastebin_backend.utils.EncodingInputStream;
 import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
+import com.hhnatsiuk.mypastebin_backend.utils.PageCursor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,24 +52,95 @@ public class PostService {
 
     private static final Logger logger = LogManager.getLogger(PostService.class);
     private static final String FILE_EXTENSION = ".txt";
+    private static final Duration MAX_CACHE_LIFETIME = Duration.ofDays(365);
+    private static final int RANGE_BUFFER_SIZE = 16 * 1024;
 
     private final PostRepository postRepository;
     private final HashGeneratorService hashServiceClient;
-    private final GoogleCloudStorageService googleCloudStorageService;
+    private final BlobStore blobStore;
     private final JwtTokenUtil jwtTokenUtil;
     private final UserRepository userRepository;
+    private final PostContentCache postContentCache;
+    private final ContentCodecRegistry contentCodecRegistry;
+    private final ContentBlobService contentBlobService;
+    private final WriteBehindUploader writeBehindUploader;
+    private final ViewCountAggregator viewCountAggregator;
+    private final TrendingPostsTracker trendingPostsTracker;
+    private final RecentPostsFeed recentPostsFeed;
+    private final PostExpirationScheduler postExpirationScheduler;
+    private final PostPurgeService postPurgeService;
+    private final PrincipalCache principalCache;
+    private final LivePostHashes livePostHashes;
+    private final boolean persistTextUrl;
+    private final int inlineThresholdBytes;
+    private final boolean inlineCompression;
+    private final Timer hashGenerationTimer;
+    private final Timer cleanupTimer;
+    private final DistributionSummary inlineContentSize;
+    private final DistributionSummary inlineStoredSize;
+    private final DistributionSummary blobContentSize;
+    private final DistributionSummary blobStoredSize;
 
     @Autowired
     public PostService(PostRepository postRepository,
                        HashGeneratorService hashServiceClient,
-                       GoogleCloudStorageService googleCloudStorageService,
+                       BlobStore blobStore,
                        JwtTokenUtil jwtTokenUtil,
-                       UserRepository userRepository) {
+                       UserRepository userRepository,
+                       PostContentCache postContentCache,
+                       ContentCodecRegistry contentCodecRegistry,
+                       ContentBlobService contentBlobService,
+                       WriteBehindUploader writeBehindUploader,
+                       ViewCountAggregator viewCountAggregator,
+                       TrendingPostsTracker trendingPostsTracker,
+                       RecentPostsFeed recentPostsFeed,
+                       PostExpirationScheduler postExpirationScheduler,
+                       PostPurgeService postPurgeService,
+                       PrincipalCache principalCache,
+                       LivePostHashes livePostHashes,
+                       MeterRegistry meterRegistry,
+                       @Value("${storage.persist-text-url:true}") boolean persistTextUrl,
+                       @Value("${storage.inline.threshold-bytes:4096}") int inlineThresholdBytes,
+                       @Value("${storage.inline.compression:true}") boolean inlineCompression) {
         this.postRepository = postRepository;
         this.hashServiceClient = hashServiceClient;
-        this.googleCloudStorageService = googleCloudStorageService;
+        this.blobStore = blobStore;
         this.jwtTokenUtil = jwtTokenUtil;
         this.userRepository = userRepository;
+        this.postContentCache = postContentCache;
+        this.contentCodecRegistry = contentCodecRegistry;
+        this.contentBlobService = contentBlobService;
+        this.writeBehindUploader = writeBehindUploader;
+        this.viewCountAggregator = viewCountAggregator;
+        this.trendingPostsTracker = trendingPostsTracker;
+        this.recentPostsFeed = recentPostsFeed;
+        this.postExpirationScheduler = postExpirationScheduler;
+        this.postPurgeService = postPurgeService;
+        this.principalCache = principalCache;
+        this.livePostHashes = livePostHashes;
+        this.persistTextUrl = persistTextUrl;
+        this.inlineThresholdBytes = inlineThresholdBytes;
+        this.inlineCompression = inlineCompression;
+        this.hashGenerationTimer = Timer.builder("hashgenerator.generate")
+                .description("Time taken to obtain the hash of a new post")
+                .register(meterRegistry);
+        this.cleanupTimer = Timer.builder("posts.cleanup")
+                .description("Runs of the scheduled purge of expired posts")
+                .register(meterRegistry);
+        this.inlineContentSize = contentSizeSummary(meterRegistry, "posts.content.size", "inline");
+        this.inlineStoredSize = contentSizeSummary(meterRegistry, "posts.content.stored.size", "inline");
+        this.blobContentSize = contentSizeSummary(meterRegistry, "posts.content.size", "blob");
+        this.blobStoredSize = contentSizeSummary(meterRegistry, "posts.content.stored.size", "blob");
+    }
+
+    /**
+     * Sizes of the content of new posts, before and after encoding, by where the content is kept.
+     */
+    private static DistributionSummary contentSizeSummary(MeterRegistry meterRegistry, String name, String storage) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("storage", storage)
+                .register(meterRegistry);
     }
 
     public PostDTO createPost(PostDTO postDTO, String tokenHeader) throws UnauthorizedException, Exception {
@@ -59,146 +154,635 @@ public class PostService {
         post.setContent(postDTO.getContent());
         post.setExpirationDate(OffsetDateTime.parse(postDTO.getExpirationDate()));
 
-        if (tokenHeader != null && !tokenHeader.isEmpty()) {
+        associateUser(post, tokenHeader);
+
+        Post createdPost = savePost(post);
+
+        logger.info("Post created successfully with ID: {}", createdPost.getId());
+
+        return toCreatedPostDTO(createdPost);
+    }
+
+    public PostDTO createPostFromStream(String title, String category, String expirationDate,
+                                       InputStream content, String tokenHeader) throws UnauthorizedException, IOException {
+        logger.info("Received request to create a new post from a content stream");
+
+        Post post = new Post();
+        post.setTitle(title);
+        post.setCategory(category);
+        post.setExpirationDate(OffsetDateTime.parse(expirationDate));
+
+        associateUser(post, tokenHeader);
+
+        Post createdPost = savePost(post, content);
+
+        logger.info("Post created successfully with ID: {}", createdPost.getId());
+
+        return toCreatedPostDTO(createdPost);
+    }
+
+    /**
+     * Associates the post with the user the request was authenticated as. Requests that skipped
+     * authentication are resolved from the token through the principal cache; either way the user
+     * is attached as a reference without loading it.
+     */
+    private void associateUser(Post post, String tokenHeader) throws UnauthorizedException {
+        Optional<AuthenticatedUser> userOptional = AuthenticatedUser.current();
+        if (userOptional.isEmpty() && tokenHeader != null && !tokenHeader.isEmpty()) {
             String token = jwtTokenUtil.extractTokenFromHeader(tokenHeader);
             String username = jwtTokenUtil.extractUsername(token);
 
-            Optional<User> userOptional = userRepository.findByUsername(username);
-            if (userOptional.isPresent()) {
-                User user = userOptional.get();
-                post.setUser(user);
-                logger.info("Post will be associated with user: {}", user.getUsername());
-            } else {
+            userOptional = principalCache.get(username).filter(AuthenticatedUser::active);
+            if (userOptional.isEmpty()) {
                 logger.error("User not found for username: {}", username);
                 throw new UnauthorizedException("User not found for username: " + username);
             }
+        }
+
+        if (userOptional.isPresent()) {
+            AuthenticatedUser user = userOptional.get();
+            post.setUser(userRepository.getReferenceById(user.id()));
+            logger.info("Post will be associated with user: {}", user.username());
         } else {
             logger.info("No Authorization header provided, proceeding without user association.");
         }
+    }
 
-        Post createdPost = savePost(post);
-
-        logger.info("Post created successfully with ID: {}", createdPost.getId());
-
+    private PostDTO toCreatedPostDTO(Post createdPost) {
         PostDTO createdPostDTO = new PostDTO();
         createdPostDTO.setHash(createdPost.getHash());
         createdPostDTO.setTitle(createdPost.getTitle());
         createdPostDTO.setCategory(createdPost.getCategory());
         createdPostDTO.setExpirationDate(createdPost.getExpirationDate().toString());
-
         return createdPostDTO;
     }
 
     public PostDTO getPostByHash(String hash) throws NotFoundException, Exception {
         logger.info("Received request to retrieve post with hash: {}", hash);
+        return toPostDTO(findPostByHash(hash), null);
+    }
 
-        Optional<Post> postOptional = postRepository.findByHash(hash);
+    /**
+     * Builds the representation of a post, loading its content. With a preview size only the
+     * first {@code previewBytes} of the content are read, cut back to a whole UTF-8 character,
+     * and the DTO tells whether anything was left out.
+     */
+    public PostDTO toPostDTO(Post post, Integer previewBytes) throws Exception {
+        String hash = post.getHash();
+
+        String content;
+        boolean truncated = false;
+        if (previewBytes != null) {
+            ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+            // One byte more than the preview tells whether the content goes on.
+            long read = streamPostContentRange(post, 0, previewBytes + 1L, prefix);
+            byte[] bytes = prefix.toByteArray();
+            truncated = read > previewBytes;
+            content = read < 0 ? null
+                    : new String(bytes, 0, truncated ? utf8BoundaryBefore(bytes, previewBytes) : bytes.length, StandardCharsets.UTF_8);
+        } else {
+            byte[] contentBytes = post.getInlineContent() != null
+                    ? post.getInlineContent()
+                    : postContentCache.get(storageKeyOf(post), this::loadStoredContent);
+            content = contentBytes != null
+                    ? new String(decode(contentCodecRegistry.forName(post.getContentEncoding()), contentBytes), StandardCharsets.UTF_8)
+                    : null;
+        }
 
-        if (postOptional.isPresent()) {
-            Post post = postOptional.get();
+        PostDTO postDTO = new PostDTO();
+        postDTO.setTitle(post.getTitle());
+        postDTO.setCategory(post.getCategory());
+        postDTO.setHash(hash);
+        postDTO.setCreatedAt(post.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        postDTO.setExpirationDate(post.getExpirationDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        postDTO.setViews((int) currentViewsOf(post));
+        postDTO.setContent(content);
+        postDTO.setTruncated(truncated);
+        postDTO.setFileSize(post.getFileSize());
+
+        logger.info("Post retrieved successfully for hash: {}", hash);
+        return postDTO;
+    }
 
-            String content = googleCloudStorageService.downloadFile(post.getHash() + FILE_EXTENSION);
+    /**
+     * Strong entity tag of the raw content as it is sent: the digest taken when the content was
+     * written, qualified by the content encoding when it is sent encoded. Posts stored before
+     * digests were recorded are tagged by their hash, which never gets other content either.
+     */
+    public String getContentEntityTag(Post post, boolean encoded) {
+        String tag = post.getContentDigest() != null ? post.getContentDigest() : "h-" + post.getHash();
+        return '"' + (encoded ? tag + "-" + post.getContentEncoding() : tag) + '"';
+    }
 
-            PostDTO postDTO = new PostDTO();
-            postDTO.setTitle(post.getTitle());
-            postDTO.setCategory(post.getCategory());
-            postDTO.setHash(post.getHash());
-            postDTO.setCreatedAt(post.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            postDTO.setExpirationDate(post.getExpirationDate().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            postDTO.setViews(post.getViews());
-            postDTO.setContent(content);
-            postDTO.setFileSize(post.getFileSize());
+    /**
+     * Weak entity tag of the JSON representation, or of its preview of the given size if one is
+     * asked for. The tag only follows the immutable post: the view count the representation
+     * carries changes with every visit and differs between instances, so a representation
+     * revalidated with this tag may show an older count. The current count is served by
+     * {@link #getPostViews(String)}.
+     */
+    public String getPostEntityTag(Post post, Integer previewBytes) {
+        String contentTag = getContentEntityTag(post, false);
+        return "W/" + contentTag.substring(0, contentTag.length() - 1) + "-json"
+                + (previewBytes != null ? "-p" + previewBytes : "") + '"';
+    }
+
+    /**
+     * Returns the current view count of a live post, including views not yet written to the
+     * database by this instance.
+     */
+    public long getPostViews(String hash) throws NotFoundException {
+        return currentViewsOf(findPostByHash(hash));
+    }
 
-            logger.info("Post retrieved successfully for hash: {}", hash);
-            return postDTO;
+    /**
+     * How long the content may be cached: until the post expires.
+     */
+    public Duration getCacheLifetime(Post post) {
+        if (post.getExpirationDate() == null) {
+            return MAX_CACHE_LIFETIME;
+        }
+        Duration untilExpiry = Duration.between(OffsetDateTime.now(), post.getExpirationDate());
+        return untilExpiry.isNegative() ? Duration.ZERO
+                : untilExpiry.compareTo(MAX_CACHE_LIFETIME) > 0 ? MAX_CACHE_LIFETIME : untilExpiry;
+    }
+
+    private long currentViewsOf(Post post) {
+        return post.getViews() + viewCountAggregator.getPendingViews(post.getHash());
+    }
+
+    public Post findPostByHash(String hash) throws NotFoundException {
+        Post post = postRepository.findByHash(hash)
+                .filter(found -> !isExpired(found))
+                .orElseThrow(() -> new NotFoundException("No post found for hash: " + hash));
+        livePostHashes.add(post);
+        return post;
+    }
+
+    /**
+     * Expired posts are deleted by the expiration scheduler shortly after their deadline; until
+     * then they are treated as if they were gone already.
+     */
+    private static boolean isExpired(Post post) {
+        return isExpired(post.getExpirationDate());
+    }
+
+    private static boolean isExpired(OffsetDateTime expirationDate) {
+        return expirationDate != null && !expirationDate.isAfter(OffsetDateTime.now());
+    }
+
+    public boolean canServeEncoded(Post post, String acceptEncoding) {
+        ContentCodec codec = contentCodecRegistry.forName(post.getContentEncoding());
+        return !ContentCodecRegistry.isIdentity(codec) && ContentCodecRegistry.isAccepted(acceptEncoding, codec.getName());
+    }
+
+    public long streamPostContent(Post post, OutputStream outputStream, boolean encoded) throws IOException {
+        String fileName = storageKeyOf(post);
+        ContentCodec codec = contentCodecRegistry.forName(post.getContentEncoding());
+        boolean passthrough = encoded || ContentCodecRegistry.isIdentity(codec);
+
+        byte[] cachedContent = post.getInlineContent() != null
+                ? post.getInlineContent()
+                : postContentCache.getIfPresent(fileName);
+        if (cachedContent == null) {
+            cachedContent = writeBehindUploader.read(fileName);
+        }
+        if (cachedContent != null) {
+            byte[] body = passthrough ? cachedContent : decode(codec, cachedContent);
+            outputStream.write(body);
+            return body.length;
+        }
+
+        long written;
+        if (passthrough) {
+            written = blobStore.stream(fileName, Channels.newChannel(outputStream));
         } else {
-            logger.warn("No post found for hash: {}", hash);
-            throw new NotFoundException("No post found for hash: " + hash);
+            InputStream stored = blobStore.openStream(fileName);
+            if (stored == null) {
+                return -1;
+            }
+            try (stored; InputStream decoded = codec.decode(stored)) {
+                written = decoded.transferTo(outputStream);
+            }
+        }
+        logger.debug("Streamed {} bytes of '{}' ({})", written, fileName, passthrough ? codec.getName() : "decoded");
+        return written;
+    }
+
+    /**
+     * Streams at most {@code length} bytes of the decoded content, starting at {@code offset}, and
+     * returns the number of bytes written, or {@code -1} if the content is missing in storage.
+     * Uncompressed content is read from storage as a ranged read. Compressed content has to be
+     * decoded from its start, but it is only read as far as the end of the range.
+     */
+    public long streamPostContentRange(Post post, long offset, long length, OutputStream outputStream) throws IOException {
+        String fileName = storageKeyOf(post);
+        ContentCodec codec = contentCodecRegistry.forName(post.getContentEncoding());
+        boolean identity = ContentCodecRegistry.isIdentity(codec);
+
+        byte[] cachedContent = post.getInlineContent() != null
+                ? post.getInlineContent()
+                : postContentCache.getIfPresent(fileName);
+        if (cachedContent == null) {
+            cachedContent = writeBehindUploader.read(fileName);
         }
+        if (cachedContent != null) {
+            if (identity) {
+                int from = (int) Math.min(offset, cachedContent.length);
+                int count = (int) Math.min(length, cachedContent.length - from);
+                outputStream.write(cachedContent, from, count);
+                return count;
+            }
+            try (InputStream decoded = codec.decode(new ByteArrayInputStream(cachedContent))) {
+                return copyRange(decoded, offset, length, outputStream);
+            }
+        }
+
+        long written;
+        if (identity) {
+            written = blobStore.streamRange(fileName, offset, length, Channels.newChannel(outputStream));
+        } else {
+            InputStream stored = blobStore.openStream(fileName);
+            if (stored == null) {
+                return -1;
+            }
+            try (stored; InputStream decoded = codec.decode(stored)) {
+                written = copyRange(decoded, offset, length, outputStream);
+            }
+        }
+        logger.debug("Streamed {} bytes at offset {} of '{}'", written, offset, fileName);
+        return written;
     }
 
-    public List<PostDTO> getRecentPostsDTO() throws Exception {
-        logger.info("Received request to get recent posts");
+    private static long copyRange(InputStream source, long offset, long length, OutputStream target) throws IOException {
+        long skipped = 0;
+        while (skipped < offset) {
+            long n = source.skip(offset - skipped);
+            if (n <= 0) {
+                if (source.read() < 0) {
+                    return 0;
+                }
+                n = 1;
+            }
+            skipped += n;
+        }
 
-        List<Post> posts = getRecentPosts();
+        byte[] buffer = new byte[RANGE_BUFFER_SIZE];
+        long copied = 0;
+        while (copied < length) {
+            int read = source.read(buffer, 0, (int) Math.min(buffer.length, length - copied));
+            if (read < 0) {
+                break;
+            }
+            target.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
 
-        logger.info("Successfully retrieved {} recent posts", posts.size());
+    /**
+     * Returns the largest length up to {@code limit} at which the UTF-8 bytes do not end in the
+     * middle of a character.
+     */
+    static int utf8BoundaryBefore(byte[] bytes, int limit) {
+        int start = limit;
+        // Step back over continuation bytes (10xxxxxx) to the start of the last character.
+        while (start > 0 && limit - start < 3 && (bytes[start - 1] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start == 0) {
+            return limit;
+        }
+        int lead = bytes[start - 1] & 0xFF;
+        int characterLength = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return limit - (start - 1) >= characterLength ? limit : start - 1;
+    }
 
-        List<PostDTO> postDTOs = posts.stream()
-                .map(post -> {
-                    PostDTO dto = new PostDTO();
-                    dto.setHash(post.getHash());
-                    dto.setTitle(post.getTitle());
-                    dto.setCategory(post.getCategory());
-                    dto.setCreatedAt(post.getCreatedAt().toString());
-                    dto.setExpirationDate(post.getExpirationDate().toString());
-                    dto.setViews(post.getViews());
-                    dto.setFileSize(post.getFileSize());
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    /**
+     * Serves the newest posts from {@link RecentPostsFeed} without querying the database, unless
+     * the feed has not been loaded yet or does not hold enough posts of the category.
+     */
+    public List<PostDTO> getRecentPostsDTO(int limit, String category) {
+        logger.info("Received request to get {} recent posts, category = {}", limit, category);
+
+        int count = Math.min(limit, recentPostsFeed.getDepth());
+        List<PostDTO> postDTOs = recentPostsFeed.getRecent(count, category);
+        if (postDTOs == null) {
+            postDTOs = count < 1 ? new ArrayList<>() : postRepository.findRecent(category, OffsetDateTime.now(), PageRequest.of(0, count))
+                    .stream()
+                    .map(this::toSummaryDTO)
+                    .collect(Collectors.toList());
+        }
 
+        logger.info("Successfully retrieved {} recent posts", postDTOs.size());
         postDTOs.forEach(postDTO -> logger.debug("PostDTO details: {}", postDTO));
 
         return postDTOs;
     }
 
     public Post savePost(Post post) {
-        String hash = hashServiceClient.generateUniqueHash();
+        String hash = hashGenerationTimer.record(hashServiceClient::generateUniqueHash);
         post.setHash(hash);
 
-        String fileName = hash + FILE_EXTENSION;
         byte[] contentBytes = post.getContent().getBytes(StandardCharsets.UTF_8);
-        String textUrl = googleCloudStorageService.uploadFile(contentBytes, "text/plain", fileName, post);
+        String digest = ContentBlobService.toHex(newContentDigest().digest(contentBytes));
+        post.setContent(null);
 
-        logger.debug("File '{}' was uploaded", fileName);
+        if (contentBytes.length < inlineThresholdBytes) {
+            storeInline(post, digest, contentBytes);
+            Post savedPost = postRepository.save(post);
+            onPostSaved(savedPost);
+            return savedPost;
+        }
 
-        post.setContent(null);
-        post.setTextUrl(textUrl);
+        ContentBlob blob = contentBlobService.reference(digest)
+                .orElseGet(() -> uploadContent(hash, digest, contentBytes));
+        applyContentBlob(post, blob);
+
+        return savePostRecord(post);
+    }
+
+    private void storeInline(Post post, String digest, byte[] contentBytes) {
+        ContentCodec codec = contentCodecRegistry.forName(IdentityContentCodec.NAME);
+        byte[] storedBytes = contentBytes;
+        if (inlineCompression) {
+            byte[] encoded = encode(contentCodecRegistry.getDefault(), contentBytes);
+            if (encoded.length < contentBytes.length) {
+                codec = contentCodecRegistry.getDefault();
+                storedBytes = encoded;
+            }
+        }
+
+        post.setInlineContent(storedBytes);
+        post.setContentDigest(digest);
+        post.setFileSize((long) contentBytes.length);
+        post.setContentEncoding(codec.getName());
+        post.setCompressedSize((long) storedBytes.length);
+        logger.debug("Content of post '{}' stored inline ({} bytes)", post.getHash(), storedBytes.length);
+    }
+
+    /**
+     * Uploads the body under a key of the post's own, so a concurrent delete of an earlier copy of
+     * the same body never removes this one.
+     */
+    private ContentBlob uploadContent(String hash, String digest, byte[] contentBytes) {
+        String fileName = hash + FILE_EXTENSION;
+        ContentCodec codec = contentCodecRegistry.getDefault();
+        byte[] storedBytes = encode(codec, contentBytes);
+        String textUrl;
+        if (writeBehindUploader.isEnabled()) {
+            writeBehindUploader.enqueue(fileName, storedBytes, codec.getStoredContentType());
+            textUrl = blobStore.urlOf(fileName);
+        } else {
+            textUrl = blobStore.put(fileName, storedBytes, codec.getStoredContentType());
+            logger.debug("File '{}' was uploaded", fileName);
+        }
+
+        ContentBlob blob = contentBlobService.register(ContentBlob.builder()
+                .digest(digest)
+                .storageKey(fileName)
+                .contentEncoding(codec.getName())
+                .fileSize((long) contentBytes.length)
+                .compressedSize((long) storedBytes.length)
+                .textUrl(persistTextUrl ? textUrl : null)
+                .build());
+        if (!fileName.equals(blob.getStorageKey())) {
+            contentBlobService.deleteStoredObjects(List.of(fileName));
+            logger.debug("File '{}' duplicates content {}, reusing the stored copy", fileName, digest);
+        }
+        return blob;
+    }
+
+    public Post savePost(Post post, InputStream content) throws IOException {
+        String hash = hashGenerationTimer.record(hashServiceClient::generateUniqueHash);
+        post.setHash(hash);
+
+        String fileName = hash + FILE_EXTENSION;
+        ContentCodec codec = contentCodecRegistry.getDefault();
+        MessageDigest contentDigest = newContentDigest();
+        CountingInputStream countingContent = new CountingInputStream(new DigestInputStream(content, contentDigest));
+        CountingInputStream storedContent = new CountingInputStream(ContentCodecRegistry.isIdentity(codec)
+                ? countingContent
+                : new EncodingInputStream(countingContent, codec::encode));
+        String textUrl = blobStore.put(fileName, storedContent, codec.getStoredContentType());
+
+        logger.debug("File '{}' was streamed to storage", fileName);
+
+        // The digest is only known once the body has been read, so a duplicate is detected after
+        // the upload and the redundant copy is removed again.
+        ContentBlob blob = contentBlobService.register(ContentBlob.builder()
+                .digest(ContentBlobService.toHex(contentDigest.digest()))
+                .storageKey(fileName)
+                .contentEncoding(codec.getName())
+                .fileSize(countingContent.getCount())
+                .compressedSize(storedContent.getCount())
+                .textUrl(persistTextUrl ? textUrl : null)
+                .build());
+        if (!fileName.equals(blob.getStorageKey())) {
+            blobStore.delete(fileName);
+            logger.debug("File '{}' duplicates content {}, reusing the stored copy", fileName, blob.getDigest());
+        }
+
+        applyContentBlob(post, blob);
+
+        return savePostRecord(post);
+    }
+
+    private void applyContentBlob(Post post, ContentBlob blob) {
+        post.setContentDigest(blob.getDigest());
+        post.setStorageKey(blob.getStorageKey());
+        post.setTextUrl(persistTextUrl ? blob.getTextUrl() : null);
+        post.setFileSize(blob.getFileSize());
+        post.setContentEncoding(blob.getContentEncoding());
+        post.setCompressedSize(blob.getCompressedSize());
+    }
+
+    private Post savePostRecord(Post post) {
+        Post savedPost;
+        try {
+            savedPost = postRepository.save(post);
+        } catch (RuntimeException e) {
+            contentBlobService.release(post.getContentDigest(), 1);
+            throw e;
+        }
+        onPostSaved(savedPost);
+        return savedPost;
+    }
+
+    private void onPostSaved(Post post) {
+        boolean inline = post.getInlineContent() != null;
+        if (post.getFileSize() != null) {
+            (inline ? inlineContentSize : blobContentSize).record(post.getFileSize());
+        }
+        if (post.getCompressedSize() != null) {
+            (inline ? inlineStoredSize : blobStoredSize).record(post.getCompressedSize());
+        }
+        recentPostsFeed.push(post);
+        postExpirationScheduler.schedule(post);
+        livePostHashes.add(post);
+    }
+
+    private String storageKeyOf(Post post) {
+        return post.getStorageKey() != null ? post.getStorageKey() : post.getHash() + FILE_EXTENSION;
+    }
+
+    private static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        return postRepository.save(post);
+    private byte[] loadStoredContent(String fileName) {
+        byte[] pending = writeBehindUploader.read(fileName);
+        return pending != null ? pending : blobStore.get(fileName);
     }
 
-    public List<Post> getRecentPosts() {
-        List<Post> posts = postRepository.findTop10ByOrderByCreatedAtDesc();
-        return posts != null ? posts : new ArrayList<>();
+    private byte[] encode(ContentCodec codec, byte[] content) {
+        if (ContentCodecRegistry.isIdentity(codec)) {
+            return content;
+        }
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (OutputStream encoder = codec.encode(encoded)) {
+            encoder.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode content with " + codec.getName(), e);
+        }
+        return encoded.toByteArray();
+    }
+
+    private byte[] decode(ContentCodec codec, byte[] stored) {
+        if (ContentCodecRegistry.isIdentity(codec)) {
+            return stored;
+        }
+        try (InputStream decoder = codec.decode(new ByteArrayInputStream(stored))) {
+            return decoder.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode content with " + codec.getName(), e);
+        }
+    }
+
+    /**
+     * Pages through the recent posts with a keyset cursor. Pages the feed can answer are served
+     * from memory; older ones are read with a range scan on {@code (created_at, id)}.
+     */
+    public CursorPage<PostDTO> getRecentPostsPage(String cursor, int limit, String category) {
+        logger.info("Received request to get a page of {} recent posts, category = {}", limit, category);
+
+        int pageSize = Math.max(1, Math.min(limit, recentPostsFeed.getDepth()));
+        PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+
+        CursorPage<PostDTO> page = recentPostsFeed.getPage(pageSize, category, after);
+        if (page != null) {
+            return page;
+        }
+
+        PageRequest request = PageRequest.of(0, pageSize + 1);
+        OffsetDateTime now = OffsetDateTime.now();
+        List<PostSummary> posts = after == null
+                ? postRepository.findRecent(category, now, request)
+                : postRepository.findRecentBefore(category, now, after.createdAt(), after.id(), request);
+        return CursorPage.of(posts, pageSize, post -> PageCursor.of(post).encode()).map(this::toSummaryDTO);
+    }
+
+    private PostDTO toSummaryDTO(PostSummary post) {
+        PostDTO dto = new PostDTO();
+        dto.setHash(post.getHash());
+        dto.setTitle(post.getTitle());
+        dto.setCategory(post.getCategory());
+        dto.setCreatedAt(post.getCreatedAt().toString());
+        dto.setExpirationDate(post.getExpirationDate().toString());
+        dto.setViews((int) (post.getViews() + viewCountAggregator.getPendingViews(post.getHash())));
+        dto.setFileSize(post.getFileSize());
+        return dto;
+    }
+
+    /**
+     * Returns the most viewed posts of the window, ranked by {@link TrendingPostsTracker}. Posts
+     * are loaded in one query and those deleted or expired in the meantime are skipped; twice the
+     * limit is taken from the ranking so skipped posts do not leave the list short.
+     */
+    public List<PostDTO> getTrendingPostsDTO(TrendingPostsTracker.Window window, int limit) {
+        logger.info("Received request to get {} trending posts of the last {}", limit, window);
+
+        List<TrendingPostsTracker.TrendingPost> trending = trendingPostsTracker.getTrending(window,
+                (int) Math.min(2L * limit, trendingPostsTracker.getCapacity()));
+        if (trending.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, PostSummary> postsByHash = postRepository.findByHashIn(
+                        trending.stream().map(TrendingPostsTracker.TrendingPost::hash).toList())
+                .stream()
+                .collect(Collectors.toMap(PostSummary::getHash, Function.identity()));
+
+        List<PostDTO> postDTOs = new ArrayList<>(Math.min(limit, trending.size()));
+        for (TrendingPostsTracker.TrendingPost trendingPost : trending) {
+            if (postDTOs.size() == limit) {
+                break;
+            }
+            PostSummary post = postsByHash.get(trendingPost.hash());
+            if (post != null && !isExpired(post.getExpirationDate())) {
+                postDTOs.add(toSummaryDTO(post));
+            }
+        }
+
+        logger.info("Successfully retrieved {} trending posts", postDTOs.size());
+        return postDTOs;
     }
 
+    @Transactional
     public void deletePost(String hash) {
         Optional<Post> post = postRepository.findByHash(hash);
         if (post.isPresent()) {
-            googleCloudStorageService.deleteFile(hash + FILE_EXTENSION);
             postRepository.deleteByHash(hash);
+            livePostHashes.remove(hash);
+            viewCountAggregator.discard(hash);
+            trendingPostsTracker.remove(hash);
+            recentPostsFeed.remove(hash);
+            if (post.get().getInlineContent() != null) {
+                logger.debug("Post with hash '{}' had inline content, no stored object to delete", hash);
+            } else if (post.get().getContentDigest() != null) {
+                contentBlobService.release(post.get().getContentDigest(), 1);
+            } else {
+                contentBlobService.deleteAfterCommit(List.of(hash + FILE_EXTENSION));
+            }
             logger.debug("Post with hash '{}' was deleted", hash);
         } else {
             logger.debug("Post with hash '{}' not found", hash);
         }
     }
 
-    public List<Post> getPostsToDelete(OffsetDateTime currentDateTime) {
-        return postRepository.findByExpirationDateBefore(currentDateTime);
-    }
-
-    @Scheduled(fixedRate = 60000)
-    @Transactional
+    /**
+     * Purges the posts whose deadline the expiration scheduler has passed, and steps through the
+     * sweep of posts that expired without being purged while one is in progress.
+     */
+    @Scheduled(fixedDelayString = "${expiration.tick-ms:1000}")
     public void cleanUpExpiredPosts() {
-        OffsetDateTime now = OffsetDateTime.now();
-        List<Post> expiredPosts = getPostsToDelete(now);
-
-        for (Post post : expiredPosts) {
-            deletePost(post.getHash());
-            logger.debug("Expired post with hash '{}' was deleted", post.getHash());
-        }
+        cleanupTimer.record(() -> {
+            List<String> expiredHashes = postExpirationScheduler.pollExpired();
+            if (!expiredHashes.isEmpty()) {
+                postPurgeService.purge(expiredHashes);
+                logger.debug("{} posts expired", expiredHashes.size());
+            }
+            if (postPurgeService.isSweeping() || postExpirationScheduler.claimBacklogSweep()) {
+                postPurgeService.sweepExpired();
+            }
+        });
     }
 
-    public void incrementPostViews(String hash) throws Exception {
-        Optional<Post> postOptional = postRepository.findByHash(hash);
-        if (postOptional.isPresent()) {
-            Post post = postOptional.get();
-            post.setViews(post.getViews() + 1);
-            postRepository.save(post);
-        } else {
-            throw new Exception("Post not found with hash: " + hash);
+    /**
+     * Counts a view without touching the post row; the views are written in batches by
+     * {@link ViewCountAggregator}. Views are only counted for hashes {@link LivePostHashes} knows
+     * to be live, so the in-memory counters cannot be filled with made-up hashes.
+     */
+    public void incrementPostViews(String hash) throws NotFoundException {
+        if (!livePostHashes.isLive(hash)) {
+            throw new NotFoundException("No post found for hash: " + hash);
         }
+        viewCountAggregator.increment(hash);
+        trendingPostsTracker.recordView(hash);
+        recentPostsFeed.recordView(hash);
     }
 }
@@ -0,0 +1,46 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Snapshots of users by username, so authenticating a request does not cost a database round
+ * trip. Unknown usernames are cached too. Entries live for {@code security.principal-cache.ttl-ms}
+ * at most and are invalidated explicitly whenever the user is created or changed on this instance;
+ * the TTL bounds how long changes made by other instances go unnoticed.
+ */
+@Component
+public class PrincipalCache {
+
+    private final UserRepository userRepository;
+    private final Cache<String, Optional<AuthenticatedUser>> principals;
+
+    public PrincipalCache(UserRepository userRepository,
+                          @Value("${security.principal-cache.ttl-ms:60000}") long ttlMillis,
+                          @Value("${security.principal-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.principals = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public Optional<AuthenticatedUser> get(String username) {
+        return principals.get(username, key -> userRepository.findByUsername(key).map(AuthenticatedUser::of));
+    }
+
+    public void invalidate(String username) {
+        principals.invalidate(username);
+    }
+
+    public long getSize() {
+        return principals.estimatedSize();
+    }
+}
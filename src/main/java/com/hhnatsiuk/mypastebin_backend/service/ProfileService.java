@@ -1,10 +1,21 @@
 package com.hhnatsiuk.mypastebin_backend.service;
 
-import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.dto.AuthenticatedUser;
+import com.hhnatsiuk.mypastebin_backend.dto.CursorPage;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+import com.hhnatsiuk.mypastebin_backend.dto.ProfileDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.ProfileSummaryDTO;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
 import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
 import com.hhnatsiuk.mypastebin_backend.repository.UserRepository;
+import com.hhnatsiuk.mypastebin_backend.utils.JwtTokenUtil;
+import com.hhnatsiuk.mypastebin_backend.utils.PageCursor;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -13,10 +24,23 @@ public class ProfileService {
 
     private final UserRepository userRepository;
     private final PostRepository postRepository;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final PrincipalCache principalCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
-    public ProfileService(UserRepository userRepository, PostRepository postRepository) {
+    public ProfileService(UserRepository userRepository,
+                          PostRepository postRepository,
+                          JwtTokenUtil jwtTokenUtil,
+                          PrincipalCache principalCache,
+                          @Value("${profile.posts.page-size:20}") int defaultPageSize,
+                          @Value("${profile.posts.max-page-size:100}") int maxPageSize) {
         this.userRepository = userRepository;
         this.postRepository = postRepository;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.principalCache = principalCache;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     public User getUserByUsername(String username) {
@@ -24,7 +48,71 @@ public class ProfileService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
-    public List<Post> getUserPosts(User user) {
-        return postRepository.findByUser(user);
+    /**
+     * Loads the user a request was authenticated as, by primary key.
+     */
+    public User getUser(AuthenticatedUser user) {
+        return userRepository.findById(user.id())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * Reference to the user a request was authenticated as, for queries that only need its id;
+     * the user is not loaded.
+     */
+    public User getUserReference(AuthenticatedUser user) {
+        return userRepository.getReferenceById(user.id());
+    }
+
+    /**
+     * Deactivates the account and revokes every token issued to it, so it is locked out at once
+     * rather than when its last token expires. The tokens are revoked and the cached principal is
+     * dropped once the deactivation has committed, so that neither a rolled back deactivation
+     * locks the user out nor a request in between caches the principal as still active.
+     */
+    @Transactional
+    public void deactivateUser(AuthenticatedUser authenticatedUser) {
+        User user = getUser(authenticatedUser);
+        user.setIsActive(false);
+        userRepository.save(user);
+
+        String username = user.getUsername();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                jwtTokenUtil.revokeAllFor(username);
+                principalCache.invalidate(username);
+            }
+        });
+    }
+
+    /**
+     * The user's details with their post count and total post views, from one aggregate query.
+     */
+    public ProfileSummaryDTO getProfileSummary(User user) {
+        return new ProfileSummaryDTO(user, postRepository.getStatsByUser(user));
+    }
+
+    public ProfileDTO getProfile(User user) {
+        return new ProfileDTO(user, postRepository.getStatsByUser(user), getUserPosts(user, null, defaultPageSize));
+    }
+
+    /**
+     * Returns the user's posts, newest first, starting after the cursor. Each page is one index
+     * range scan on {@code (fk_user_id, created_at, id)}, however deep the cursor points, that
+     * reads the summary columns only.
+     */
+    public CursorPage<PostSummary> getUserPosts(User user, String cursor, Integer limit) {
+        int pageSize = limit != null ? Math.max(1, Math.min(limit, maxPageSize)) : defaultPageSize;
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+
+        List<PostSummary> posts;
+        if (cursor == null) {
+            posts = postRepository.findSummariesByUser(user, page);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            posts = postRepository.findSummariesByUserBefore(user, after.createdAt(), after.id(), page);
+        }
+        return CursorPage.of(posts, pageSize, post -> PageCursor.of(post).encode());
     }
 }
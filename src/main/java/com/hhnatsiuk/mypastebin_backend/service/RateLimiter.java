@@ -0,0 +1,104 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets per client and endpoint policy, implemented as the generic cell rate algorithm:
+ * a bucket is a single timestamp, the time at which it would be full again, advanced with one
+ * compare-and-set per request. Every policy allows {@code ratelimit.<policy>.per-minute}
+ * requests a minute with bursts of up to {@code ratelimit.<policy>.burst}. Buckets live in a
+ * size-bounded map of at most {@code ratelimit.max-keys} clients, and every
+ * {@code ratelimit.sweep-interval-ms} the buckets that have filled up again are dropped, as a
+ * full bucket is the same as no bucket. Expiring them in the sweep rather than per access keeps
+ * the clock and the map's access bookkeeping off the request path.
+ */
+@Component
+public class RateLimiter {
+
+    public enum Policy {
+        CREATE,
+        READ,
+        VIEWS
+    }
+
+    private final Map<Policy, Limit> limits = new EnumMap<>(Policy.class);
+
+    public RateLimiter(@Value("${ratelimit.create.per-minute:10}") int createPerMinute,
+                       @Value("${ratelimit.create.burst:5}") int createBurst,
+                       @Value("${ratelimit.read.per-minute:600}") int readPerMinute,
+                       @Value("${ratelimit.read.burst:100}") int readBurst,
+                       @Value("${ratelimit.views.per-minute:60}") int viewsPerMinute,
+                       @Value("${ratelimit.views.burst:10}") int viewsBurst,
+                       @Value("${ratelimit.max-keys:100000}") long maxKeys) {
+        limits.put(Policy.CREATE, new Limit(createPerMinute, createBurst, maxKeys));
+        limits.put(Policy.READ, new Limit(readPerMinute, readBurst, maxKeys));
+        limits.put(Policy.VIEWS, new Limit(viewsPerMinute, viewsBurst, maxKeys));
+    }
+
+    /**
+     * Takes a token from the client's bucket. Returns {@code 0} if the request may proceed, or
+     * else the number of nanoseconds until it would be allowed.
+     */
+    public long tryAcquire(Policy policy, String key) {
+        return limits.get(policy).tryAcquire(key, System.nanoTime());
+    }
+
+    @Scheduled(fixedDelayString = "${ratelimit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        for (Limit limit : limits.values()) {
+            limit.buckets.asMap().values().removeIf(bucket -> bucket.get() - now <= 0);
+        }
+    }
+
+    public long getRejectedCount(Policy policy) {
+        return limits.get(policy).rejected.get();
+    }
+
+    public long getTrackedClientCount(Policy policy) {
+        return limits.get(policy).buckets.estimatedSize();
+    }
+
+    private static final class Limit {
+        private final long emissionIntervalNanos;
+        private final long burstToleranceNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final AtomicLong rejected = new AtomicLong();
+
+        private Limit(int perMinute, int burst, long maxKeys) {
+            this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(1, perMinute);
+            this.burstToleranceNanos = emissionIntervalNanos * Math.max(1, burst);
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .build();
+        }
+
+        private long tryAcquire(String key, long now) {
+            AtomicLong bucket = buckets.getIfPresent(key);
+            if (bucket == null) {
+                bucket = buckets.get(key, k -> new AtomicLong(now));
+            }
+            while (true) {
+                long fullAt = bucket.get();
+                long next = Math.max(fullAt, now) + emissionIntervalNanos;
+                long wait = next - now - burstToleranceNanos;
+                if (wait > 0) {
+                    rejected.incrementAndGet();
+                    return wait;
+                }
+                if (bucket.compareAndSet(fullAt, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.dto.CursorPage;
+import com.hhnatsiuk.mypastebin_backend.dto.PostDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import com.hhnatsiuk.mypastebin_backend.utils.PageCursor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The newest posts, kept in memory so the landing page is served without touching the database.
+ * The feed is an immutable array, newest first and at most {@code recent.depth} long, that is
+ * replaced on every change; reads only take the current array. Saved posts are pushed onto it,
+ * deleted and expired posts are removed from it, and it is reloaded from the database once the
+ * application is ready and every {@code recent.refresh-interval-ms} to pick up posts created by
+ * other instances. Until the first reload has succeeded the feed answers nothing and callers read
+ * from the database.
+ */
+@Component
+public class RecentPostsFeed {
+
+    private static final Logger logger = LogManager.getLogger(RecentPostsFeed.class);
+
+    private static final Comparator<Entry> NEWEST_FIRST =
+            Comparator.comparing((Entry entry) -> entry.createdAt).thenComparingLong(entry -> entry.id).reversed();
+
+    private static final class Entry {
+        private final long id;
+        private final String hash;
+        private final String title;
+        private final String category;
+        private final OffsetDateTime createdAt;
+        private final OffsetDateTime expirationDate;
+        private final Long fileSize;
+        private final long seededViews;
+        private final AtomicLong views = new AtomicLong();
+
+        private Entry(long id, String hash, String title, String category, OffsetDateTime createdAt,
+                      OffsetDateTime expirationDate, Long fileSize, long seededViews) {
+            this.id = id;
+            this.hash = hash;
+            this.title = title;
+            this.category = category;
+            this.createdAt = createdAt;
+            this.expirationDate = expirationDate;
+            this.fileSize = fileSize;
+            this.seededViews = seededViews;
+        }
+
+        private static Entry of(Post post) {
+            return new Entry(post.getId(), post.getHash(), post.getTitle(), post.getCategory(), post.getCreatedAt(),
+                    post.getExpirationDate(), post.getFileSize(), post.getViews());
+        }
+
+        private static Entry of(PostSummary post, long seededViews) {
+            return new Entry(post.getId(), post.getHash(), post.getTitle(), post.getCategory(), post.getCreatedAt(),
+                    post.getExpirationDate(), post.getFileSize(), seededViews);
+        }
+
+        private PostDTO toDTO() {
+            PostDTO dto = new PostDTO();
+            dto.setHash(hash);
+            dto.setTitle(title);
+            dto.setCategory(category);
+            dto.setCreatedAt(createdAt.toString());
+            dto.setExpirationDate(expirationDate.toString());
+            dto.setViews((int) (seededViews + views.get()));
+            dto.setFileSize(fileSize);
+            return dto;
+        }
+
+        private boolean isLive(OffsetDateTime now, String category) {
+            return !expirationDate.isBefore(now) && (category == null || category.equalsIgnoreCase(this.category));
+        }
+    }
+
+    private final PostRepository postRepository;
+    private final ViewCountAggregator viewCountAggregator;
+    private final int depth;
+
+    private volatile Entry[] entries = new Entry[0];
+    private volatile boolean seeded;
+    private volatile boolean hasOlder;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private Set<String> removedWhileRefreshing;
+
+    public RecentPostsFeed(PostRepository postRepository,
+                           ViewCountAggregator viewCountAggregator,
+                           @Value("${recent.depth:100}") int depth) {
+        this.postRepository = postRepository;
+        this.viewCountAggregator = viewCountAggregator;
+        this.depth = depth;
+    }
+
+    /**
+     * Returns up to {@code limit} of the newest live posts, optionally only those of one category,
+     * or {@code null} if the feed has not been loaded yet or holds too few matching posts while
+     * older ones exist, and the posts have to be read from the database.
+     */
+    public List<PostDTO> getRecent(int limit, String category) {
+        if (!seeded) {
+            return null;
+        }
+
+        Entry[] snapshot = entries;
+        boolean complete = !hasOlder;
+        OffsetDateTime now = OffsetDateTime.now();
+        List<PostDTO> recent = new ArrayList<>(Math.min(limit, depth));
+        for (Entry entry : snapshot) {
+            if (recent.size() == limit) {
+                break;
+            }
+            if (entry.isLive(now, category)) {
+                recent.add(entry.toDTO());
+            }
+        }
+        if (recent.size() < limit && !complete) {
+            return null;
+        }
+        return recent;
+    }
+
+    /**
+     * Returns the page of live posts after the cursor, or {@code null} if the feed has not been
+     * loaded yet or does not reach back far enough to fill it, and the page has to be read from
+     * the database.
+     */
+    public CursorPage<PostDTO> getPage(int limit, String category, PageCursor after) {
+        if (!seeded) {
+            return null;
+        }
+
+        Entry[] snapshot = entries;
+        boolean complete = !hasOlder;
+        OffsetDateTime now = OffsetDateTime.now();
+        List<Entry> rows = new ArrayList<>(limit + 1);
+        for (Entry entry : snapshot) {
+            if (rows.size() > limit) {
+                break;
+            }
+            if ((after == null || after.precedes(entry.createdAt, entry.id)) && entry.isLive(now, category)) {
+                rows.add(entry);
+            }
+        }
+        if (rows.size() <= limit && !complete) {
+            return null;
+        }
+        return CursorPage.of(rows, limit, entry -> new PageCursor(entry.createdAt, entry.id).encode()).map(Entry::toDTO);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public synchronized void push(Post post) {
+        Entry[] current = entries;
+        if (current.length == depth && !post.getCreatedAt().isAfter(current[current.length - 1].createdAt)) {
+            return;
+        }
+        List<Entry> updated = new ArrayList<>(current.length + 1);
+        updated.add(Entry.of(post));
+        for (Entry entry : current) {
+            if (!entry.hash.equals(post.getHash())) {
+                updated.add(entry);
+            }
+        }
+        publish(updated);
+    }
+
+    public synchronized void remove(String hash) {
+        if (removedWhileRefreshing != null) {
+            removedWhileRefreshing.add(hash);
+        }
+        Entry[] current = entries;
+        List<Entry> updated = new ArrayList<>(current.length);
+        for (Entry entry : current) {
+            if (!entry.hash.equals(hash)) {
+                updated.add(entry);
+            }
+        }
+        if (updated.size() != current.length) {
+            publish(updated);
+        }
+    }
+
+    public void recordView(String hash) {
+        for (Entry entry : entries) {
+            if (entry.hash.equals(hash)) {
+                entry.views.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load the recent posts feed, retrying on the next refresh: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reloads the feed from the database. Posts pushed or removed while the query runs are
+     * applied on top of its result, so the refresh never undoes a concurrent change. Refreshes
+     * run one at a time.
+     */
+    @Scheduled(fixedDelayString = "${recent.refresh-interval-ms:60000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            reload();
+        } finally {
+            refreshLock.unlock();
+        }
+        logger.debug("Recent posts feed refreshed with {} posts", entries.length);
+    }
+
+    private void reload() {
+        OffsetDateTime started;
+        Set<String> removed = new HashSet<>();
+        synchronized (this) {
+            removedWhileRefreshing = removed;
+            started = OffsetDateTime.now();
+        }
+
+        List<PostSummary> posts;
+        try {
+            posts = postRepository.findAllByOrderByCreatedAtDescIdDesc(PageRequest.of(0, depth));
+        } finally {
+            synchronized (this) {
+                removedWhileRefreshing = null;
+            }
+        }
+
+        synchronized (this) {
+            Set<String> seen = new HashSet<>();
+            List<Entry> updated = new ArrayList<>(depth);
+            for (Entry entry : entries) {
+                if (!entry.createdAt.isBefore(started)) {
+                    updated.add(entry);
+                    seen.add(entry.hash);
+                }
+            }
+            for (PostSummary post : posts) {
+                if (!removed.contains(post.getHash()) && seen.add(post.getHash())) {
+                    updated.add(Entry.of(post, post.getViews() + viewCountAggregator.getPendingViews(post.getHash())));
+                }
+            }
+            hasOlder = posts.size() == depth;
+            publish(updated);
+            seeded = true;
+        }
+    }
+
+    private void publish(List<Entry> updated) {
+        updated.sort(NEWEST_FIRST);
+        if (updated.size() > depth) {
+            hasOlder = true;
+        }
+        entries = updated.subList(0, Math.min(depth, updated.size())).toArray(new Entry[0]);
+    }
+}
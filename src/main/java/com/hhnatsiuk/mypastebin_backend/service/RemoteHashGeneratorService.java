@@ -0,0 +1,276 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out hashes from a local pool that a background refiller keeps between the low and high
+ * watermarks, so creating a post does not wait on the hash service. The remote service is only
+ * called on the request thread when the pool has run dry, and if that call fails as well the
+ * hash is taken from an embedded {@link SnowflakeHashGeneratorService}, if the fallback is
+ * switched on with {@code hashgenerator.fallback-to-embedded}. The fallback requires an explicit
+ * {@code hashgenerator.node-id} that no other node uses, claimed with an {@link ExclusiveLease}, and
+ * its hashes start with {@value #FALLBACK_PREFIX}, which the hash service does not produce.
+ * <p>
+ * Calls to the hash service are timed under {@code hashgenerator.remote.requests}, tagged with
+ * whether a single hash or a batch was requested.
+ */
+@Service
+@ConditionalOnProperty(name = "hashgenerator.mode", havingValue = "remote", matchIfMissing = true)
+public class RemoteHashGeneratorService implements HashGeneratorService {
+
+    private static final Logger logger = LogManager.getLogger(RemoteHashGeneratorService.class);
+
+    static final String FALLBACK_PREFIX = "_";
+
+    @Value("${hashgenerator.url}")
+    private String hashGeneratorUrl;
+
+    @Value("${hashgenerator.batch-url:}")
+    private String hashGeneratorBatchUrl;
+
+    @Value("${hashgenerator.pool.low-watermark:256}")
+    private int lowWatermark;
+
+    @Value("${hashgenerator.pool.high-watermark:768}")
+    private int highWatermark;
+
+    @Value("${hashgenerator.pool.batch-size:128}")
+    private int batchSize;
+
+    private final RestTemplate restTemplate;
+    private final SnowflakeHashGeneratorService fallback;
+    private final ExclusiveLease fallbackNodeIdLease;
+    private final HashRingBuffer pool;
+    private final int capacity;
+    private final ExecutorService refillExecutor;
+    private final ExecutorService fetchExecutor;
+    private final int parallelism;
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final Timer singleRequestTimer;
+    private final Timer batchRequestTimer;
+
+    private final AtomicLong servedFromPool = new AtomicLong();
+    private final AtomicLong servedDirectly = new AtomicLong();
+    private final AtomicLong servedByFallback = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong refillFailures = new AtomicLong();
+
+    public RemoteHashGeneratorService(MeterRegistry meterRegistry,
+                                      SchedulerLeaseService schedulerLeaseService,
+                                      @Value("${hashgenerator.pool.capacity:1024}") int capacity,
+                                      @Value("${hashgenerator.connect-timeout-ms:1000}") long connectTimeoutMillis,
+                                      @Value("${hashgenerator.read-timeout-ms:2000}") long readTimeoutMillis,
+                                      @Value("${hashgenerator.pool.parallelism:4}") int parallelism,
+                                      @Value("${hashgenerator.fallback-to-embedded:false}") boolean fallbackToEmbedded,
+                                      @Value("${hashgenerator.node-id:" + SnowflakeHashGeneratorService.UNSET_NODE_ID + "}") long nodeId,
+                                      @Value("${hashgenerator.node-id-lease-ttl-ms:60000}") long leaseTtlMillis) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+
+        this.restTemplate = new RestTemplate(requestFactory);
+        if (fallbackToEmbedded) {
+            this.fallbackNodeIdLease = SnowflakeHashGeneratorService.nodeIdLease(schedulerLeaseService,
+                    SnowflakeHashGeneratorService.checkNodeId(nodeId), Duration.ofMillis(leaseTtlMillis));
+            this.fallback = new SnowflakeHashGeneratorService(nodeId, fallbackNodeIdLease);
+        } else {
+            this.fallbackNodeIdLease = null;
+            this.fallback = null;
+        }
+        this.pool = new HashRingBuffer(capacity);
+        this.capacity = capacity;
+        this.parallelism = parallelism;
+        this.refillExecutor = Executors.newSingleThreadExecutor(runnable -> daemonThread(runnable, "hash-pool-refill"));
+        this.fetchExecutor = Executors.newFixedThreadPool(parallelism, runnable -> daemonThread(runnable, "hash-pool-fetch"));
+        this.singleRequestTimer = requestTimer(meterRegistry, "single");
+        this.batchRequestTimer = requestTimer(meterRegistry, "batch");
+    }
+
+    private static Timer requestTimer(MeterRegistry meterRegistry, String request) {
+        return Timer.builder("hashgenerator.remote.requests")
+                .description("Calls to the remote hash service")
+                .tag("request", request)
+                .register(meterRegistry);
+    }
+
+    private static Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @PostConstruct
+    void prefill() {
+        validatePoolSettings();
+        if (fallbackNodeIdLease != null) {
+            fallbackNodeIdLease.claim();
+        }
+        triggerRefill();
+    }
+
+    @Scheduled(fixedDelayString = "${hashgenerator.node-id-lease-renew-ms:20000}")
+    public void renewFallbackNodeId() {
+        if (fallbackNodeIdLease != null) {
+            fallbackNodeIdLease.renew();
+        }
+    }
+
+    /**
+     * A pool that cannot hold the high watermark would never count as refilled, and the refiller
+     * would fetch and discard hashes forever.
+     */
+    private void validatePoolSettings() {
+        if (lowWatermark < 0 || lowWatermark >= highWatermark || highWatermark > capacity) {
+            throw new IllegalStateException("Hash pool watermarks must satisfy 0 <= low-watermark < high-watermark <= capacity, got "
+                    + lowWatermark + ", " + highWatermark + " and " + capacity);
+        }
+        if (batchSize < 1 || parallelism < 1) {
+            throw new IllegalStateException("hashgenerator.pool.batch-size and hashgenerator.pool.parallelism must be positive");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refillExecutor.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+
+    @Override
+    public String generateUniqueHash() {
+        String hash = pool.poll();
+        if (pool.size() < lowWatermark) {
+            triggerRefill();
+        }
+        if (hash != null) {
+            servedFromPool.incrementAndGet();
+            return hash;
+        }
+
+        logger.warn("Hash pool is empty, fetching a hash from the hash service directly");
+        try {
+            String direct = fetchOne();
+            servedDirectly.incrementAndGet();
+            return direct;
+        } catch (RestClientException e) {
+            if (fallback == null || !fallbackNodeIdLease.isHeld()) {
+                throw e;
+            }
+            logger.warn("Hash service is unavailable, using the embedded generator: {}", e.getMessage());
+            servedByFallback.incrementAndGet();
+            return FALLBACK_PREFIX + fallback.generateUniqueHash();
+        }
+    }
+
+    private void triggerRefill() {
+        if (refilling.compareAndSet(false, true)) {
+            try {
+                refillExecutor.execute(this::refill);
+            } catch (RuntimeException e) {
+                refilling.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void refill() {
+        try {
+            boolean full = false;
+            while (!full && pool.size() < highWatermark) {
+                List<String> hashes = fetchBatch(Math.min(batchSize, highWatermark - pool.size()));
+                if (hashes.isEmpty()) {
+                    break;
+                }
+                for (String hash : hashes) {
+                    if (!pool.offer(hash)) {
+                        full = true;
+                        break;
+                    }
+                }
+                fetched.addAndGet(hashes.size());
+            }
+            logger.debug("Hash pool refilled to {} hashes", pool.size());
+        } catch (Exception e) {
+            refillFailures.incrementAndGet();
+            logger.warn("Failed to refill the hash pool: {}", e.getMessage());
+        } finally {
+            refilling.set(false);
+        }
+    }
+
+    private List<String> fetchBatch(int count) {
+        if (!hashGeneratorBatchUrl.isEmpty()) {
+            String url = UriComponentsBuilder.fromHttpUrl(hashGeneratorBatchUrl)
+                    .queryParam("count", count)
+                    .toUriString();
+            String[] hashes = batchRequestTimer.record(() -> restTemplate.getForObject(url, String[].class));
+            return hashes != null ? Arrays.asList(hashes) : List.of();
+        }
+
+        List<CompletableFuture<String>> requests = new ArrayList<>(parallelism);
+        for (int i = 0; i < Math.min(count, parallelism); i++) {
+            requests.add(CompletableFuture.supplyAsync(this::fetchOne, fetchExecutor));
+        }
+        List<String> hashes = new ArrayList<>(requests.size());
+        for (CompletableFuture<String> request : requests) {
+            String hash = request.join();
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        return hashes;
+    }
+
+    private String fetchOne() {
+        return singleRequestTimer.record(() -> restTemplate.getForObject(hashGeneratorUrl, String.class));
+    }
+
+    public int getPoolSize() {
+        return pool.size();
+    }
+
+    public long getServedFromPoolCount() {
+        return servedFromPool.get();
+    }
+
+    public long getServedDirectlyCount() {
+        return servedDirectly.get();
+    }
+
+    public long getServedByFallbackCount() {
+        return servedByFallback.get();
+    }
+
+    public long getFetchedCount() {
+        return fetched.get();
+    }
+
+    public long getRefillFailureCount() {
+        return refillFailures.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.entity.SchedulerLease;
+import com.hhnatsiuk.mypastebin_backend.repository.SchedulerLeaseRepository;
+import jakarta.transaction.Transactional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Cluster-wide leases on named background jobs, so that a job runs on one replica at a time. A
+ * lease is a row in {@code scheduler_leases} that is locked with {@code SELECT ... FOR UPDATE}
+ * while it is taken over or renewed; it lapses unless its owner renews it before it expires.
+ */
+@Service
+public class SchedulerLeaseService {
+
+    private static final Logger logger = LogManager.getLogger(SchedulerLeaseService.class);
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+    }
+
+    /**
+     * Takes or renews the lease for {@code ttl}. Returns {@code false} if another node holds it.
+     */
+    @Transactional
+    public boolean tryAcquire(String name, Duration ttl) {
+        schedulerLeaseRepository.insertIfAbsent(name);
+        SchedulerLease lease = schedulerLeaseRepository.findForUpdate(name)
+                .orElseThrow(() -> new IllegalStateException("Lease row " + name + " is missing"));
+
+        OffsetDateTime now = OffsetDateTime.now();
+        boolean ownedHere = nodeId.equals(lease.getOwner());
+        if (!ownedHere && lease.getExpiresAt() != null && lease.getExpiresAt().isAfter(now)) {
+            return false;
+        }
+        if (!ownedHere) {
+            logger.info("Lease '{}' taken over by {} from {}", name, nodeId, lease.getOwner());
+        }
+        lease.setOwner(nodeId);
+        lease.setExpiresAt(now.plus(ttl));
+        schedulerLeaseRepository.save(lease);
+        return true;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
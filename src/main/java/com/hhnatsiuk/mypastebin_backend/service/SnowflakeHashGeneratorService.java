@@ -0,0 +1,133 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process generator of snowflake-style ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS},
+ * a 10-bit node id and a 12-bit per-millisecond sequence, rendered in base62. Ids are unique
+ * across nodes as long as every node is configured with its own {@code hashgenerator.node-id}:
+ * the setting has no default, and the node id is claimed with an {@link ExclusiveLease} on startup,
+ * so a node configured with an id that another node holds refuses to start. Ids are not handed
+ * out while the lease is lost.
+ * <p>
+ * The last timestamp and sequence are packed into one {@link AtomicLong} and advanced with CAS,
+ * so no lock is taken. When a millisecond runs out of sequence numbers, or the clock moves
+ * backwards, the generator moves on to the next timestamp instead of waiting for the clock.
+ */
+@Service
+@ConditionalOnProperty(name = "hashgenerator.mode", havingValue = "embedded")
+public class SnowflakeHashGeneratorService implements HashGeneratorService {
+
+    private static final Logger logger = LogManager.getLogger(SnowflakeHashGeneratorService.class);
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final char[] BASE62_ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    static final long UNSET_NODE_ID = -1;
+    private static final String LEASE_PREFIX = "hashgenerator-node-";
+
+    private final long nodeId;
+    private final ExclusiveLease nodeIdLease;
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public SnowflakeHashGeneratorService(@Value("${hashgenerator.node-id:" + UNSET_NODE_ID + "}") long nodeId,
+                                         SchedulerLeaseService schedulerLeaseService,
+                                         @Value("${hashgenerator.node-id-lease-ttl-ms:60000}") long leaseTtlMillis) {
+        this(nodeId, nodeIdLease(schedulerLeaseService, checkNodeId(nodeId), Duration.ofMillis(leaseTtlMillis)));
+    }
+
+    static ExclusiveLease nodeIdLease(SchedulerLeaseService schedulerLeaseService, long nodeId, Duration ttl) {
+        return new ExclusiveLease(schedulerLeaseService, LEASE_PREFIX + nodeId, "hashgenerator.node-id " + nodeId, ttl);
+    }
+
+    /**
+     * Creates a generator whose node id is claimed by the caller, or, with a {@code null}
+     * lease, not claimed at all.
+     */
+    SnowflakeHashGeneratorService(long nodeId, ExclusiveLease nodeIdLease) {
+        this.nodeId = checkNodeId(nodeId);
+        this.nodeIdLease = nodeIdLease;
+        logger.info("Embedded hash generator initialized for node {}", nodeId);
+    }
+
+    static long checkNodeId(long nodeId) {
+        if (nodeId == UNSET_NODE_ID) {
+            throw new IllegalStateException("hashgenerator.node-id must be set to an id no other node uses");
+        }
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("hashgenerator.node-id must be between 0 and " + MAX_NODE_ID + ", got " + nodeId);
+        }
+        return nodeId;
+    }
+
+    @PostConstruct
+    void claimNodeId() {
+        if (nodeIdLease != null) {
+            nodeIdLease.claim();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hashgenerator.node-id-lease-renew-ms:20000}")
+    public void renewNodeId() {
+        if (nodeIdLease != null) {
+            nodeIdLease.renew();
+        }
+    }
+
+    @Override
+    public String generateUniqueHash() {
+        if (nodeIdLease != null && !nodeIdLease.isHeld()) {
+            throw new IllegalStateException("hashgenerator.node-id " + nodeId + " is not held by this node");
+        }
+        return toBase62(nextId(System.currentTimeMillis()));
+    }
+
+    long nextId(long currentTimeMillis) {
+        long now = currentTimeMillis - EPOCH_MILLIS;
+        long previous;
+        long next;
+        do {
+            previous = lastState.get();
+            long previousTimestamp = previous >>> SEQUENCE_BITS;
+            if (now > previousTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = previous + 1;
+            } else {
+                next = (previousTimestamp + 1) << SEQUENCE_BITS;
+            }
+        } while (!lastState.compareAndSet(previous, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    static String toBase62(long value) {
+        char[] buffer = new char[11];
+        int position = buffer.length;
+        do {
+            buffer[--position] = BASE62_ALPHABET[(int) (value % 62)];
+            value /= 62;
+        } while (value > 0);
+        return new String(buffer, position, buffer.length - position);
+    }
+}
@@ -0,0 +1,275 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the most viewed posts over sliding windows in fixed memory. Every window is a ring of
+ * time buckets, each holding a count-min sketch of the views made in it; a bucket is cleared when
+ * the ring comes around to it again, so old views fall out of the window bucket by bucket. Next to
+ * the sketches every window keeps a bounded ordered set of the posts with the highest estimates,
+ * in which a ranked post is moved in logarithmic time.
+ * <p>
+ * Recording a view only increments atomic counters; the ranking is locked only for views of
+ * posts that are already ranked or whose estimate beats the lowest ranked one. Views are only
+ * recorded for posts known to exist, see {@link PostService#incrementPostViews(String)}.
+ */
+@Component
+public class TrendingPostsTracker {
+
+    public enum Window {
+        HOUR(12, TimeUnit.MINUTES.toMillis(5)),
+        DAY(24, TimeUnit.HOURS.toMillis(1));
+
+        private final int bucketCount;
+        private final long bucketMillis;
+
+        Window(int bucketCount, long bucketMillis) {
+            this.bucketCount = bucketCount;
+            this.bucketMillis = bucketMillis;
+        }
+
+        public static Window parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public record TrendingPost(String hash, long views) {
+    }
+
+    private static final int SKETCH_DEPTH = 4;
+
+    private static final Comparator<Candidate> BY_VIEWS =
+            Comparator.comparingLong((Candidate candidate) -> candidate.views).thenComparing(candidate -> candidate.hash);
+
+    private final int sketchWidth;
+    private final int capacity;
+    private final Map<Window, WindowedCounter> counters = new EnumMap<>(Window.class);
+
+    public TrendingPostsTracker(@Value("${trending.sketch-width:2048}") int sketchWidth,
+                                @Value("${trending.capacity:100}") int capacity) {
+        this.sketchWidth = sketchWidth;
+        this.capacity = capacity;
+        for (Window window : Window.values()) {
+            counters.put(window, new WindowedCounter(window));
+        }
+    }
+
+    public void recordView(String hash) {
+        long now = System.currentTimeMillis();
+        int[] cells = cellsOf(hash);
+        for (WindowedCounter counter : counters.values()) {
+            counter.record(hash, cells, now);
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} posts ordered by their estimated views within the window.
+     */
+    public List<TrendingPost> getTrending(Window window, int limit) {
+        return counters.get(window).top(Math.min(limit, capacity), System.currentTimeMillis());
+    }
+
+    public void remove(String hash) {
+        for (WindowedCounter counter : counters.values()) {
+            counter.remove(hash);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int[] cellsOf(String hash) {
+        byte[] bytes = hash.getBytes(StandardCharsets.UTF_8);
+        long h1 = mix(hash.hashCode());
+        long h2 = mix(fnv1a(bytes)) | 1;
+        int[] cells = new int[SKETCH_DEPTH];
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            cells[row] = row * sketchWidth + (int) Long.remainderUnsigned(h1 + row * h2, sketchWidth);
+        }
+        return cells;
+    }
+
+    private static long fnv1a(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static final class Bucket {
+        private final AtomicLong period = new AtomicLong(-1);
+        private final AtomicLongArray cells;
+
+        private Bucket(int size) {
+            this.cells = new AtomicLongArray(size);
+        }
+    }
+
+    private static final class Candidate {
+        private final String hash;
+        private long views;
+
+        private Candidate(String hash, long views) {
+            this.hash = hash;
+            this.views = views;
+        }
+    }
+
+    private final class WindowedCounter {
+        private final Window window;
+        private final Bucket[] buckets;
+        private final Map<String, Candidate> ranked = new ConcurrentHashMap<>();
+        private final NavigableSet<Candidate> ranking = new TreeSet<>(BY_VIEWS);
+        private volatile long admissionFloor;
+        private long rankedPeriod = -1;
+
+        private WindowedCounter(Window window) {
+            this.window = window;
+            this.buckets = new Bucket[window.bucketCount];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Bucket(SKETCH_DEPTH * sketchWidth);
+            }
+        }
+
+        void record(String hash, int[] cells, long now) {
+            long period = now / window.bucketMillis;
+            Bucket bucket = current(period);
+            for (int cell : cells) {
+                bucket.cells.incrementAndGet(cell);
+            }
+
+            long views = estimate(cells, period);
+            if (views > admissionFloor || ranked.containsKey(hash)) {
+                synchronized (this) {
+                    rerankIfRotated(period);
+                    offer(hash, views);
+                }
+            }
+        }
+
+        synchronized List<TrendingPost> top(int limit, long now) {
+            rerankIfRotated(now / window.bucketMillis);
+
+            List<TrendingPost> top = new ArrayList<>(Math.min(limit, ranking.size()));
+            for (Candidate candidate : ranking.descendingSet()) {
+                if (top.size() == limit) {
+                    break;
+                }
+                top.add(new TrendingPost(candidate.hash, candidate.views));
+            }
+            return top;
+        }
+
+        synchronized void remove(String hash) {
+            Candidate candidate = ranked.remove(hash);
+            if (candidate != null) {
+                ranking.remove(candidate);
+                updateAdmissionFloor();
+            }
+        }
+
+        private Bucket current(long period) {
+            Bucket bucket = buckets[(int) (period % buckets.length)];
+            long seen = bucket.period.get();
+            if (seen < period && bucket.period.compareAndSet(seen, period)) {
+                for (int i = 0; i < bucket.cells.length(); i++) {
+                    bucket.cells.set(i, 0);
+                }
+            }
+            return bucket;
+        }
+
+        /**
+         * Count-min estimate over the live buckets: every row is summed across the window first,
+         * and the smallest row total is the estimate.
+         */
+        private long estimate(int[] cells, long period) {
+            long estimate = Long.MAX_VALUE;
+            for (int cell : cells) {
+                long total = 0;
+                for (Bucket bucket : buckets) {
+                    long bucketPeriod = bucket.period.get();
+                    if (bucketPeriod > period - buckets.length && bucketPeriod <= period) {
+                        total += bucket.cells.get(cell);
+                    }
+                }
+                estimate = Math.min(estimate, total);
+            }
+            return estimate;
+        }
+
+        private void offer(String hash, long views) {
+            Candidate candidate = ranked.get(hash);
+            if (candidate != null) {
+                ranking.remove(candidate);
+                candidate.views = views;
+                ranking.add(candidate);
+            } else if (ranking.size() < capacity) {
+                candidate = new Candidate(hash, views);
+                ranked.put(hash, candidate);
+                ranking.add(candidate);
+            } else if (views > ranking.first().views) {
+                ranked.remove(ranking.pollFirst().hash);
+                candidate = new Candidate(hash, views);
+                ranked.put(hash, candidate);
+                ranking.add(candidate);
+            }
+            updateAdmissionFloor();
+        }
+
+        /**
+         * Once a bucket has dropped out of the window the ranked estimates are too high, so they
+         * are recomputed and posts without views left in the window are unranked.
+         */
+        private void rerankIfRotated(long period) {
+            if (period == rankedPeriod) {
+                return;
+            }
+            rankedPeriod = period;
+            current(period);
+
+            List<Candidate> candidates = new ArrayList<>(ranking);
+            ranking.clear();
+            for (Candidate candidate : candidates) {
+                candidate.views = estimate(cellsOf(candidate.hash), period);
+                if (candidate.views > 0) {
+                    ranking.add(candidate);
+                } else {
+                    ranked.remove(candidate.hash);
+                }
+            }
+            updateAdmissionFloor();
+        }
+
+        private void updateAdmissionFloor() {
+            admissionFloor = ranking.size() < capacity || ranking.isEmpty() ? 0 : ranking.first().views;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts post views in memory and writes the accumulated deltas to the database in one batched
+ * statement per flush, instead of a read-modify-write of the post row on every view.
+ * <p>
+ * Each hash has its own {@link LongAdder}, so concurrent views of a popular post are counted
+ * without a lock. A flush writes the current sums and subtracts them only once the write
+ * succeeded, so the views stay pending until they are in the database. A counter that stayed at
+ * zero for a whole interval is retired inside {@link ConcurrentHashMap#computeIfPresent}: it is
+ * marked before checking that it is still zero, and removed if so or unmarked if not. A view that
+ * finds the mark after adding itself takes the map lock, and if the counter has been removed moves
+ * whatever it still holds into the live counter of the hash.
+ */
+@Component
+public class ViewCountAggregator {
+
+    private static final Logger logger = LogManager.getLogger(ViewCountAggregator.class);
+    private static final String INCREMENT_VIEWS_SQL = "UPDATE posts SET views = views + ? WHERE hash = ?";
+
+    private static final class PendingCount {
+        private final LongAdder views = new LongAdder();
+        private volatile boolean retired;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<String, PendingCount> pendingViews = new ConcurrentHashMap<>();
+
+    private final AtomicLong flushedViews = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+
+    public ViewCountAggregator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void increment(String hash) {
+        PendingCount pending = pendingViews.get(hash);
+        if (pending == null || pending.retired) {
+            addLocked(hash, null);
+            return;
+        }
+        pending.views.increment();
+        // Retirement marks the counter before checking that it is still zero, so either it sees
+        // this view and keeps the counter, or this check sees the mark.
+        if (pending.retired) {
+            addLocked(hash, pending);
+        }
+    }
+
+    /**
+     * Counts a view under the map lock, which retirement also holds. {@code addedTo} is a counter
+     * the view has already been added to; if it has been removed since, the views it holds were
+     * added after its retirement found it empty and are moved to the live counter.
+     */
+    private void addLocked(String hash, PendingCount addedTo) {
+        pendingViews.compute(hash, (key, pending) -> {
+            if (addedTo != null && pending == addedTo) {
+                return pending;
+            }
+            long views = addedTo != null ? addedTo.views.sum() : 1;
+            if (views == 0) {
+                return pending;
+            }
+            if (pending == null) {
+                pending = new PendingCount();
+            }
+            if (addedTo != null) {
+                addedTo.views.add(-views);
+            }
+            pending.views.add(views);
+            return pending;
+        });
+    }
+
+    /**
+     * Returns the views of the post that have been counted but not yet written to the database.
+     */
+    public long getPendingViews(String hash) {
+        PendingCount pending = pendingViews.get(hash);
+        return pending != null ? pending.views.sum() : 0;
+    }
+
+    /**
+     * Drops the pending views of a deleted post.
+     */
+    public void discard(String hash) {
+        pendingViews.remove(hash);
+    }
+
+    @Scheduled(fixedDelayString = "${views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<PendingCount> flushed = new ArrayList<>();
+        for (Map.Entry<String, PendingCount> entry : pendingViews.entrySet()) {
+            long delta = entry.getValue().views.sum();
+            if (delta == 0) {
+                retire(entry.getKey(), entry.getValue());
+            } else {
+                batch.add(new Object[]{delta, entry.getKey()});
+                flushed.add(entry.getValue());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INCREMENT_VIEWS_SQL, batch);
+        } catch (RuntimeException e) {
+            flushFailures.incrementAndGet();
+            logger.warn("Failed to flush views of {} posts, keeping them for the next flush: {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        long views = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            long delta = (Long) batch.get(i)[0];
+            flushed.get(i).views.add(-delta);
+            views += delta;
+        }
+        flushedViews.addAndGet(views);
+        logger.debug("Flushed {} views of {} posts", views, batch.size());
+    }
+
+    private void retire(String hash, PendingCount idle) {
+        pendingViews.computeIfPresent(hash, (key, pending) -> {
+            if (pending != idle) {
+                return pending;
+            }
+            pending.retired = true;
+            if (pending.views.sum() != 0) {
+                pending.retired = false;
+                return pending;
+            }
+            return null;
+        });
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    public int getTrackedPostCount() {
+        return pendingViews.size();
+    }
+
+    public long getFlushedViewCount() {
+        return flushedViews.get();
+    }
+
+    public long getFlushFailureCount() {
+        return flushFailures.get();
+    }
+}
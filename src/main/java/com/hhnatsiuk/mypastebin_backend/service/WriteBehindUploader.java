@@ -0,0 +1,147 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind path for new paste content: the content is made durable in a local
+ * {@link PendingUploadLog} and drained to the blob store in the background, so creating a post
+ * does not wait for object storage. Reads of not yet uploaded content are served from the log.
+ * <p>
+ * The log lives on the local disk of the node that accepted the upload: no other node can read
+ * the content until it has been uploaded, and it is lost with that disk. Write-behind is
+ * therefore only for single-node deployments. It is off unless
+ * {@code storage.write-behind.enabled} is set, and a node that enables it claims the
+ * {@value #LEASE_NAME} lease, so a second node with write-behind enabled refuses to start. While
+ * the lease is not held, new content is uploaded directly and the log is still drained.
+ */
+@Service
+public class WriteBehindUploader {
+
+    private static final Logger logger = LogManager.getLogger(WriteBehindUploader.class);
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    static final String LEASE_NAME = "write-behind";
+
+    private final BlobStore blobStore;
+    private final PendingUploadLog pendingUploadLog;
+    private final ExclusiveLease lease;
+    private final int batchSize;
+    private final long maxBackoffMillis;
+
+    private final AtomicLong uploaded = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public WriteBehindUploader(BlobStore blobStore,
+                               SchedulerLeaseService schedulerLeaseService,
+                               @Value("${storage.write-behind.enabled:false}") boolean enabled,
+                               @Value("${storage.write-behind.log-dir:data/upload-log}") String logDirectory,
+                               @Value("${storage.write-behind.segment-bytes:67108864}") int segmentBytes,
+                               @Value("${storage.write-behind.batch-size:32}") int batchSize,
+                               @Value("${storage.write-behind.max-backoff-ms:60000}") long maxBackoffMillis,
+                               @Value("${storage.write-behind.lease-ttl-ms:30000}") long leaseTtlMillis) throws IOException {
+        this.blobStore = blobStore;
+        this.pendingUploadLog = enabled ? new PendingUploadLog(Path.of(logDirectory), segmentBytes) : null;
+        this.lease = enabled ? new ExclusiveLease(schedulerLeaseService, LEASE_NAME,
+                "write-behind uploading (storage.write-behind.enabled)", Duration.ofMillis(leaseTtlMillis)) : null;
+        this.batchSize = batchSize;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @PostConstruct
+    void claimLease() {
+        if (lease != null) {
+            lease.claim();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.write-behind.lease-renew-ms:10000}")
+    public void renewLease() {
+        if (lease != null) {
+            lease.renew();
+        }
+    }
+
+    /**
+     * Whether new content should be queued rather than uploaded directly.
+     */
+    public boolean isEnabled() {
+        return pendingUploadLog != null && lease.isHeld();
+    }
+
+    public void enqueue(String key, byte[] content, String contentType) {
+        try {
+            pendingUploadLog.append(key, contentType, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append " + key + " to the upload log", e);
+        }
+        logger.debug("File '{}' queued for upload", key);
+    }
+
+    /**
+     * Returns the content of a pending upload, or {@code null} if the key is not waiting in the log.
+     */
+    public byte[] read(String key) {
+        return pendingUploadLog != null ? pendingUploadLog.read(key) : null;
+    }
+
+    public void discard(String key) {
+        if (pendingUploadLog == null) {
+            return;
+        }
+        try {
+            if (pendingUploadLog.discard(key)) {
+                logger.debug("Pending upload of '{}' was discarded", key);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to record discarded upload of '{}': {}", key, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.write-behind.drain-interval-ms:200}")
+    public void drain() {
+        if (pendingUploadLog == null) {
+            return;
+        }
+
+        List<PendingUploadLog.Entry> batch = pendingUploadLog.pollBatch(batchSize, System.currentTimeMillis());
+        for (PendingUploadLog.Entry entry : batch) {
+            try {
+                blobStore.put(entry.getKey(), pendingUploadLog.read(entry), entry.getContentType());
+                if (!pendingUploadLog.complete(entry)) {
+                    blobStore.delete(entry.getKey());
+                    logger.debug("File '{}' was discarded while uploading and has been removed again", entry.getKey());
+                }
+                uploaded.incrementAndGet();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                long backoff = Math.min(maxBackoffMillis, INITIAL_BACKOFF_MILLIS << Math.min(entry.getAttempts(), 16));
+                pendingUploadLog.retryLater(entry, System.currentTimeMillis() + backoff);
+                logger.warn("Upload of '{}' failed (attempt {}), retrying in {} ms: {}",
+                        entry.getKey(), entry.getAttempts(), backoff, e.getMessage());
+            }
+        }
+    }
+
+    public long getPendingCount() {
+        return pendingUploadLog != null ? pendingUploadLog.getPendingCount() : 0;
+    }
+
+    public long getUploadedCount() {
+        return uploaded.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+}
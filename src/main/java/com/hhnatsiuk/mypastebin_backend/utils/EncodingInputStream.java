@@ -0,0 +1,74 @@
+package com.hhnatsiuk.mypastebin_backend.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Adapts an encoding {@link OutputStream} (such as a compressor) into an {@link InputStream}
+ * that yields the encoded form of the source, one chunk at a time.
+ */
+public class EncodingInputStream extends InputStream {
+
+    public interface EncoderFactory {
+        OutputStream create(OutputStream target) throws IOException;
+    }
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final InputStream source;
+    private final ChunkBuffer pending = new ChunkBuffer();
+    private final OutputStream encoder;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean finished;
+
+    public EncodingInputStream(InputStream source, EncoderFactory encoderFactory) throws IOException {
+        this.source = source;
+        this.encoder = encoderFactory.create(pending);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == pending.size()) {
+            if (finished) {
+                return -1;
+            }
+            pending.reset();
+            position = 0;
+            int read = source.read(chunk);
+            if (read == -1) {
+                encoder.close();
+                finished = true;
+            } else {
+                encoder.write(chunk, 0, read);
+            }
+        }
+        int count = Math.min(len, pending.size() - position);
+        System.arraycopy(pending.buffer(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private static final class ChunkBuffer extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -1,25 +1,123 @@
 package com.hhnatsiuk.mypastebin_backend.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.hhnatsiuk.mypastebin_backend.entity.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies JWTs. The signature of a token is checked once: the verified claims are
+ * cached under a SHA-256 digest of the token until the token expires, in a cache bounded by
+ * {@code jwt.cache.max-size}. Revoked tokens, and every token issued to a user before
+ * {@link #revokeAllFor(String)} was called for them, are rejected even when cached. Signature
+ * checks are timed under {@code jwt.verifications}, tagged with their outcome.
+ * <p>
+ * Revocations are kept in memory until the tokens they cover expire, so they apply to this
+ * instance only. At most {@code jwt.revoked.max-size} tokens are revoked one by one; when more
+ * are, the oldest revocation is widened to every token issued to its user up to the revoked one,
+ * so no revoked token is ever accepted again.
+ */
 @Component
 public class JwtTokenUtil {
 
+    /**
+     * The claims of a token whose signature has been verified.
+     */
+    public record VerifiedToken(String username, long issuedAtMillis, long expiresAtMillis) {
+
+        private boolean isExpired(long now) {
+            return expiresAtMillis <= now;
+        }
+    }
+
+    private static final Expiry<String, VerifiedToken> UNTIL_TOKEN_EXPIRY = new Expiry<>() {
+        @Override
+        public long expireAfterCreate(String digest, VerifiedToken token, long currentTime) {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAtMillis() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return expireAfterCreate(digest, token, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String digest, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    };
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.token.expiration}")
     private int expirationInMinutes;
 
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    @Value("${jwt.revoked.max-size:100000}")
+    private long revokedMaxSize;
+
+    private final Timer validTokenTimer;
+    private final Timer invalidTokenTimer;
+
+    private Cache<String, VerifiedToken> verifiedTokens;
+    private Cache<String, VerifiedToken> revokedTokens;
+    private Cache<String, Long> revokedUsers;
+
+    public JwtTokenUtil(MeterRegistry meterRegistry) {
+        this.validTokenTimer = verificationTimer(meterRegistry, "valid");
+        this.invalidTokenTimer = verificationTimer(meterRegistry, "invalid");
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.verifications")
+                .description("Signature checks of tokens not found in the verified token cache")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void initCaches() {
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(UNTIL_TOKEN_EXPIRY)
+                .build();
+        revokedTokens = Caffeine.newBuilder()
+                .maximumSize(revokedMaxSize)
+                .expireAfter(UNTIL_TOKEN_EXPIRY)
+                .evictionListener((String digest, VerifiedToken token, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && token != null) {
+                        revokeIssuedUpTo(token.username(), token.issuedAtMillis());
+                    }
+                })
+                .build();
+        // No token outlives its lifetime, so neither does a revocation of all of a user's tokens.
+        revokedUsers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(expirationInMinutes))
+                .build();
+    }
+
     public String generateToken(User user) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("username", user.getUsername());
@@ -34,8 +132,71 @@ public class JwtTokenUtil {
                 .compact();
     }
 
+    /**
+     * Returns the claims of a valid token, verifying its signature only if it is not cached yet.
+     *
+     * @throws RuntimeException if the token is malformed, forged, expired or revoked
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digestOf(token);
+        if (revokedTokens.getIfPresent(digest) != null) {
+            throw new RuntimeException("Token has been revoked");
+        }
+
+        VerifiedToken verified = verifiedTokens.get(digest, key -> parse(token));
+        if (verified.isExpired(System.currentTimeMillis())) {
+            verifiedTokens.invalidate(digest);
+            throw new RuntimeException("Token has expired");
+        }
+
+        Long revokedBefore = revokedUsers.getIfPresent(verified.username());
+        if (revokedBefore != null && verified.issuedAtMillis() <= revokedBefore) {
+            throw new RuntimeException("Token has been revoked");
+        }
+        return verified;
+    }
+
     public String extractUsername(String token) {
-        return getClaimsFromToken(token).getSubject();
+        return verify(token).username();
+    }
+
+    /**
+     * Rejects the token until it expires, e.g. on logout.
+     */
+    public void revoke(String token) {
+        VerifiedToken verified = verify(token);
+        String digest = digestOf(token);
+        revokedTokens.put(digest, verified);
+        verifiedTokens.invalidate(digest);
+    }
+
+    /**
+     * Rejects every token issued to the user so far, e.g. when the account is deactivated.
+     */
+    public void revokeAllFor(String username) {
+        revokeIssuedUpTo(username, System.currentTimeMillis());
+    }
+
+    private void revokeIssuedUpTo(String username, long issuedAtMillis) {
+        revokedUsers.asMap().merge(username, issuedAtMillis, Math::max);
+    }
+
+    private VerifiedToken parse(String token) {
+        long start = System.nanoTime();
+        Claims claims;
+        try {
+            claims = getClaimsFromToken(token);
+        } catch (RuntimeException e) {
+            invalidTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        validTokenTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        // Issue times have second precision, so a token issued in the same second as a revocation
+        // of all the user's tokens counts as issued before it and is rejected too.
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : 0,
+                claims.getExpiration().getTime());
     }
 
     private Claims getClaimsFromToken(String token) {
@@ -49,6 +210,15 @@ public class JwtTokenUtil {
         }
     }
 
+    private static String digestOf(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     public String extractTokenFromHeader(String header) {
         if (header != null && header.startsWith("Bearer ")) {
             return header.substring(7);
@@ -56,17 +226,19 @@ public class JwtTokenUtil {
         throw new RuntimeException("Invalid token format");
     }
 
+    public long getVerifiedTokenCount() {
+        return verifiedTokens.estimatedSize();
+    }
+
     public int getExpirationTime() {
         return expirationInMinutes * 60;
     }
 
     public boolean isTokenValid(String token, User userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
-
-    private boolean isTokenExpired(String token) {
-        final Date expiration = getClaimsFromToken(token).getExpiration();
-        return expiration.before(new Date());
+        try {
+            return verify(token).username().equals(userDetails.getUsername());
+        } catch (RuntimeException e) {
+            return false;
+        }
     }
 }
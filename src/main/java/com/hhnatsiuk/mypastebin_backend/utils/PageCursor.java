@@ -0,0 +1,64 @@
+package com.hhnatsiuk.mypastebin_backend.utils;
+
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Position in a list of posts ordered by {@code (createdAt, id)} descending. It is handed to
+ * clients as an opaque base64url token and resumes the list right after the post it points at.
+ */
+public record PageCursor(OffsetDateTime createdAt, long id) {
+
+    /**
+     * Latest creation time a cursor may point at: later ones do not fit a DATETIME column and
+     * would fail the query instead of returning an empty page.
+     */
+    private static final Instant LATEST = Instant.parse("9999-12-31T23:59:59.999999Z");
+
+    public static PageCursor of(PostSummary post) {
+        return new PageCursor(post.getCreatedAt(), post.getId());
+    }
+
+    public String encode() {
+        long micros = ChronoUnit.MICROS.between(Instant.EPOCH, createdAt.toInstant());
+        String position = micros + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Parses a token produced by {@link #encode()}; throws {@link IllegalArgumentException} if it
+     * is malformed or points before the epoch or past {@link #LATEST}.
+     */
+    public static PageCursor decode(String token) {
+        String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+        int separator = position.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed page cursor: " + token);
+        }
+        try {
+            long micros = Long.parseLong(position.substring(0, separator));
+            long id = Long.parseLong(position.substring(separator + 1));
+            Instant createdAt = Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+            if (micros < 0 || createdAt.isAfter(LATEST)) {
+                throw new IllegalArgumentException("Page cursor out of range: " + token);
+            }
+            return new PageCursor(OffsetDateTime.ofInstant(createdAt, ZoneOffset.UTC), id);
+        } catch (NumberFormatException | ArithmeticException | DateTimeException e) {
+            throw new IllegalArgumentException("Malformed page cursor: " + token, e);
+        }
+    }
+
+    /**
+     * Tells whether a post at the given position comes after this cursor in the list.
+     */
+    public boolean precedes(OffsetDateTime otherCreatedAt, long otherId) {
+        return otherCreatedAt.isBefore(createdAt) || (otherCreatedAt.isEqual(createdAt) && otherId < id);
+    }
+}
@@ -0,0 +1,84 @@
+package com.hhnatsiuk.mypastebin_backend.config;
+
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link JwtAuthenticationFilter} on requests to public endpoints. Run {@link #main}
+ * from the test classpath: it runs the benchmark with the GC profiler and fails if the filter
+ * allocates on that path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String PUBLIC_ENDPOINTS =
+            "/api/auth/login,/api/auth/signup,/api/posts/**,/swagger-ui/**,/v3/api-docs/**,/oauth2/**,/login/oauth2/**";
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> {
+    };
+
+    /**
+     * Allocated bytes per operation below which the filter counts as not allocating; the GC
+     * profiler reports small fractions of a byte as measurement noise.
+     */
+    private static final double ALLOCATION_NOISE_BYTES = 1.0;
+
+    @Param({"/api/auth/login", "/api/posts/abc123XYZ/raw", "/swagger-ui/index.html"})
+    public String path;
+
+    private JwtAuthenticationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        filter = new JwtAuthenticationFilter(null, null, PUBLIC_ENDPOINTS);
+        request = new MockHttpServletRequest("GET", path);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void publicEndpoint() throws Exception {
+        filter.doFilterInternal(request, response, NO_OP_CHAIN);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        for (RunResult result : results) {
+            Result<?> allocated = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            if (allocated != null && allocated.getScore() >= ALLOCATION_NOISE_BYTES) {
+                throw new AssertionError("The filter allocates " + allocated.getScore() + " bytes per request to "
+                        + result.getParams().getParam("path"));
+            }
+        }
+    }
+}
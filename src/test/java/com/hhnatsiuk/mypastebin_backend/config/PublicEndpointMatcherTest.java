@@ -0,0 +1,60 @@
+package com.hhnatsiuk.mypastebin_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PublicEndpointMatcherTest {
+
+    private static final String PATTERNS =
+            "/api/auth/login, /api/auth/signup,/api/posts/**,/swagger-ui/**,/v3/api-docs/**,/oauth2/**,/login/oauth2/**,"
+                    + "/api/profile/*/posts,/static/*.css,,";
+
+    private final PublicEndpointMatcher matcher = new PublicEndpointMatcher(PATTERNS);
+
+    @Test
+    void matchesExactPaths() {
+        assertThat(matcher.matches("/api/auth/login")).isTrue();
+        assertThat(matcher.matches("/api/auth/signup")).isTrue();
+        assertThat(matcher.matches("/api/auth/logout")).isFalse();
+        assertThat(matcher.matches("/api/auth/login/extra")).isFalse();
+    }
+
+    @Test
+    void matchesPrefixesOnPathSegmentsOnly() {
+        assertThat(matcher.matches("/api/posts")).isTrue();
+        assertThat(matcher.matches("/api/posts/")).isTrue();
+        assertThat(matcher.matches("/api/posts/abc123/raw")).isTrue();
+        assertThat(matcher.matches("/api/postsecret")).isFalse();
+        assertThat(matcher.matches("/api/post")).isFalse();
+        assertThat(matcher.matches("/login/oauth2/code/google")).isTrue();
+        assertThat(matcher.matches("/login")).isFalse();
+    }
+
+    @Test
+    void matchesOtherPatternsLikeAntPathMatcher() {
+        assertThat(matcher.matches("/api/profile/alice/posts")).isTrue();
+        assertThat(matcher.matches("/api/profile/posts")).isFalse();
+        assertThat(matcher.matches("/static/site.css")).isTrue();
+        assertThat(matcher.matches("/static/site.js")).isFalse();
+    }
+
+    @Test
+    void agreesWithAntPathMatcher() {
+        AntPathMatcher antPathMatcher = new AntPathMatcher();
+        List<String> patterns = Arrays.stream(PATTERNS.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList();
+        String[] paths = {"/", "", "/api", "/api/", "/api/auth/login", "/api/posts", "/api/posts/x", "/api/postsx",
+                "/swagger-ui", "/swagger-ui/index.html", "/swagger-uix", "/v3/api-docs/swagger-config", "/oauth2",
+                "/oauth2/authorization/google", "/api/profile/bob/posts", "/api/profile/bob/posts/1", "/static/a.css",
+                "/static/nested/a.css", "/api/profile"};
+
+        for (String path : paths) {
+            boolean expected = patterns.stream().anyMatch(pattern -> antPathMatcher.match(pattern, path));
+            assertThat(matcher.matches(path)).as(path).isEqualTo(expected);
+        }
+    }
+}
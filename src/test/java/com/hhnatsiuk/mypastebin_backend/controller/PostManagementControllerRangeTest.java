@@ -0,0 +1,135 @@
+package com.hhnatsiuk.mypastebin_backend.controller;
+
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.service.PostService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PostManagementControllerRangeTest {
+
+    private static final String HASH = "abc123";
+    private static final String ETAG = "\"digest\"";
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    private final PostService postService = mock(PostService.class);
+    private final PostManagementController controller = new PostManagementController(postService);
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/" + HASH + "/raw");
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private Post post;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        post = new Post();
+        post.setHash(HASH);
+        post.setFileSize((long) CONTENT.length);
+        when(postService.findPostByHash(HASH)).thenReturn(post);
+        when(postService.getContentEntityTag(eq(post), anyBoolean())).thenReturn(ETAG);
+        when(postService.getCacheLifetime(post)).thenReturn(Duration.ofHours(1));
+        when(postService.streamPostContent(eq(post), any(OutputStream.class), anyBoolean())).thenAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write(CONTENT);
+            return (long) CONTENT.length;
+        });
+        when(postService.streamPostContentRange(eq(post), anyLong(), anyLong(), any(OutputStream.class))).thenAnswer(invocation -> {
+            int offset = (int) (long) invocation.getArgument(1, Long.class);
+            int length = (int) (long) invocation.getArgument(2, Long.class);
+            byte[] range = Arrays.copyOfRange(CONTENT, offset, Math.min(CONTENT.length, offset + length));
+            invocation.getArgument(3, OutputStream.class).write(range);
+            return (long) range.length;
+        });
+    }
+
+    @Test
+    void servesASingleRangeAsPartialContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        controller.getRawPost(HASH, null, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.PARTIAL_CONTENT.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void servesSuffixAndOpenEndedRanges() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+        controller.getRawPost(HASH, null, request, response);
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(response.getContentAsString()).isEqualTo("789");
+
+        MockHttpServletResponse openEnded = new MockHttpServletResponse();
+        MockHttpServletRequest openEndedRequest = new MockHttpServletRequest("GET", request.getRequestURI());
+        openEndedRequest.addHeader(HttpHeaders.RANGE, "bytes=8-100");
+        controller.getRawPost(HASH, null, openEndedRequest, openEnded);
+
+        assertThat(openEnded.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+        assertThat(openEnded.getContentAsString()).isEqualTo("89");
+    }
+
+    @Test
+    void answersUnsatisfiableRangesWith416() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-20");
+
+        controller.getRawPost(HASH, null, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        verify(postService, never()).streamPostContentRange(any(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void sendsEverythingForSeveralOrMalformedRanges() throws Exception {
+        for (String range : new String[]{"bytes=0-1,4-5", "lines=1-2", "bytes=5-2"}) {
+            MockHttpServletRequest rangeRequest = new MockHttpServletRequest("GET", request.getRequestURI());
+            rangeRequest.addHeader(HttpHeaders.RANGE, range);
+            MockHttpServletResponse rangeResponse = new MockHttpServletResponse();
+
+            controller.getRawPost(HASH, null, rangeRequest, rangeResponse);
+
+            assertThat(rangeResponse.getStatus()).as(range).isEqualTo(HttpStatus.OK.value());
+            assertThat(rangeResponse.getContentAsString()).as(range).isEqualTo("0123456789");
+        }
+    }
+
+    @Test
+    void sendsEverythingWhenIfRangeNamesOtherContent() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"other\"");
+
+        controller.getRawPost(HASH, null, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void answersMissingContentWith404() throws Exception {
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        when(postService.streamPostContentRange(eq(post), anyLong(), anyLong(), any(OutputStream.class))).thenReturn(-1L);
+
+        controller.getRawPost(HASH, null, request, response);
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+    }
+}
@@ -0,0 +1,184 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.entity.ContentBlob;
+import com.hhnatsiuk.mypastebin_backend.repository.ContentBlobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentBlobServiceTest {
+
+    private final ContentBlobRepository repository = mock(ContentBlobRepository.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final PostContentCache postContentCache = mock(PostContentCache.class);
+    private final WriteBehindUploader writeBehindUploader = mock(WriteBehindUploader.class);
+    private final ContentBlobService service = new ContentBlobService(repository, blobStore, postContentCache, writeBehindUploader);
+
+    // The content_blobs table, keyed by digest.
+    private final Map<String, ContentBlob> rows = new HashMap<>();
+
+    @BeforeEach
+    void backRepositoryWithRows() {
+        when(repository.findById(anyString())).thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.incrementReferences(anyString())).thenAnswer(invocation -> adjust(invocation.getArgument(0), 1));
+        when(repository.decrementReferences(anyString(), anyLong()))
+                .thenAnswer(invocation -> adjust(invocation.getArgument(0), -invocation.<Long>getArgument(1)));
+        when(repository.deleteIfUnreferenced(anyString())).thenAnswer(invocation -> {
+            ContentBlob blob = rows.get(invocation.<String>getArgument(0));
+            return blob != null && blob.getReferenceCount() <= 0 && rows.remove(blob.getDigest()) != null ? 1 : 0;
+        });
+        when(repository.insertOrReference(anyString(), anyString(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            String digest = invocation.getArgument(0);
+            if (rows.containsKey(digest)) {
+                return adjust(digest, 1);
+            }
+            rows.put(digest, blob(digest, invocation.getArgument(1)));
+            return 1;
+        });
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void referencesOnlyStoredBodies() {
+        assertThat(service.reference("d1")).isEmpty();
+
+        service.register(blob("d1", "post-a"));
+
+        assertThat(service.reference("d1")).hasValueSatisfying(blob -> {
+            assertThat(blob.getStorageKey()).isEqualTo("post-a");
+            assertThat(blob.getReferenceCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void aLosingRegistrationReferencesTheWinnersObject() {
+        service.register(blob("d1", "post-a"));
+
+        ContentBlob registered = service.register(blob("d1", "post-b"));
+
+        assertThat(registered.getStorageKey()).isEqualTo("post-a");
+        assertThat(registered.getReferenceCount()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsTheObjectWhileReferencesRemain() {
+        service.register(blob("d1", "post-a"));
+        service.reference("d1");
+
+        service.release("d1", 1);
+
+        assertThat(rows.get("d1").getReferenceCount()).isEqualTo(1);
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void deletesTheObjectOnlyAfterTheTransactionCommits() {
+        service.register(blob("d1", "post-a"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.release("d1", 1);
+
+        assertThat(rows).doesNotContainKey("d1");
+        verify(blobStore, never()).delete(anyString());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        verify(writeBehindUploader).discard("post-a");
+        verify(postContentCache).invalidate("post-a");
+        verify(blobStore).delete("post-a");
+    }
+
+    @Test
+    void doesNotDeleteTheObjectWhenTheTransactionRollsBack() {
+        service.register(blob("d1", "post-a"));
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.release("d1", 1);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(blobStore, never()).delete(anyString());
+    }
+
+    @Test
+    void deletesRightAwayWithoutATransaction() {
+        service.register(blob("d1", "post-a"));
+
+        service.release("d1", 1);
+
+        verify(blobStore).delete("post-a");
+    }
+
+    @Test
+    void releaseAllReturnsTheKeysOfBodiesNothingRefersToAnymore() {
+        service.register(blob("d1", "post-a"));
+        service.register(blob("d2", "post-b"));
+        service.reference("d2");
+        service.reference("d2");
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("d1", 1L);
+        counts.put("d2", 2L);
+
+        List<String> unreferenced = service.releaseAll(counts);
+
+        assertThat(unreferenced).containsExactly("post-a");
+        assertThat(rows.get("d2").getReferenceCount()).isEqualTo(1);
+        verify(blobStore, never()).delete(anyString());
+        verify(blobStore, never()).batchDelete(anyCollection());
+    }
+
+    @Test
+    void deletesManyObjectsInOneBatchAndOnlyLogsFailures() {
+        doThrow(new IllegalStateException("store unavailable")).when(blobStore).batchDelete(anyCollection());
+
+        assertThatCode(() -> service.deleteStoredObjects(List.of("post-a", "post-b"))).doesNotThrowAnyException();
+
+        verify(blobStore).batchDelete(List.of("post-a", "post-b"));
+        verify(writeBehindUploader).discard("post-b");
+        verify(postContentCache).invalidate("post-b");
+    }
+
+    private int adjust(String digest, long delta) {
+        ContentBlob blob = rows.get(digest);
+        if (blob == null) {
+            return 0;
+        }
+        blob.setReferenceCount(blob.getReferenceCount() + delta);
+        return 1;
+    }
+
+    private static ContentBlob blob(String digest, String storageKey) {
+        return ContentBlob.builder()
+                .digest(digest)
+                .storageKey(storageKey)
+                .referenceCount(1L)
+                .build();
+    }
+}
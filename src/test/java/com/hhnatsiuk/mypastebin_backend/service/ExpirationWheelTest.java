@@ -0,0 +1,78 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpirationWheelTest {
+
+    private static final long TICK = 100;
+    private static final int WHEEL_SIZE = 8;
+
+    private final ExpirationWheel wheel = new ExpirationWheel(TICK, WHEEL_SIZE, 0);
+
+    @Test
+    void firesOnTheFirstTickAtOrAfterTheDeadline() {
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 300);
+
+        assertThat(advanceTo(200)).isEmpty();
+        assertThat(advanceTo(300)).containsExactlyInAnyOrder("a", "b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void refusesDeadlinesThatHavePassed() {
+        advanceTo(500);
+
+        assertThat(wheel.schedule("a", 500)).isFalse();
+        assertThat(wheel.schedule("b", 420)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void keepsTheFirstDeadlineOfAHash() {
+        wheel.schedule("a", 200);
+        wheel.schedule("a", 5_000);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(advanceTo(200)).containsExactly("a");
+    }
+
+    @Test
+    void handsDeadlinesBeyondTheLowestLevelDownInTime() {
+        long interval = TICK * WHEEL_SIZE;
+        long[] deadlines = {interval + 1, 5_000, interval * WHEEL_SIZE + 50, 100_000, 1_234_567};
+        for (long deadline : deadlines) {
+            wheel.schedule("h" + deadline, deadline);
+        }
+
+        for (long deadline : deadlines) {
+            long tick = -Math.floorDiv(-deadline, TICK) * TICK;
+            assertThat(advanceTo(tick - TICK)).doesNotContain("h" + deadline);
+            assertThat(advanceTo(tick)).contains("h" + deadline);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void startsBetweenTicks() {
+        ExpirationWheel offset = new ExpirationWheel(TICK, WHEEL_SIZE, 1_050);
+        offset.schedule("a", 1_120);
+
+        List<String> expired = new ArrayList<>();
+        offset.advance(1_100, expired::add);
+        assertThat(expired).isEmpty();
+        offset.advance(1_200, expired::add);
+        assertThat(expired).containsExactly("a");
+    }
+
+    private List<String> advanceTo(long now) {
+        List<String> expired = new ArrayList<>();
+        wheel.advance(now, expired::add);
+        return expired;
+    }
+}
@@ -0,0 +1,83 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipContentCodecTest {
+
+    private final GzipContentCodec codec = new GzipContentCodec();
+
+    @Test
+    void decodesWhatItEncodes() throws IOException {
+        byte[] content = "Zażółć gęślą jaźń\n".repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] encoded = encode(content);
+
+        assertThat(encoded).startsWith((byte) 0x1f, (byte) 0x8b);
+        assertThat(encoded.length).isLessThan(content.length);
+        try (InputStream decoded = codec.decode(new ByteArrayInputStream(encoded))) {
+            assertThat(decoded.readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void encodesEmptyContent() throws IOException {
+        try (InputStream decoded = codec.decode(new ByteArrayInputStream(encode(new byte[0])))) {
+            assertThat(decoded.readAllBytes()).isEmpty();
+        }
+    }
+
+    @Test
+    void rejectsContentThatIsNotGzip() {
+        byte[] plain = "plain text".getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> codec.decode(new ByteArrayInputStream(plain))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void namesTheContentCoding() {
+        assertThat(codec.getName()).isEqualTo("gzip");
+        assertThat(codec.getStoredContentType()).isEqualTo("application/gzip");
+    }
+
+    @Test
+    void isAcceptedWhenTheClientAllowsGzip() {
+        assertThat(ContentCodecRegistry.isAccepted("gzip, deflate, br", "gzip")).isTrue();
+        assertThat(ContentCodecRegistry.isAccepted("GZIP;q=0.5", "gzip")).isTrue();
+        assertThat(ContentCodecRegistry.isAccepted("br, *", "gzip")).isTrue();
+    }
+
+    @Test
+    void isNotAcceptedWhenTheClientRefusesOrOmitsGzip() {
+        assertThat(ContentCodecRegistry.isAccepted(null, "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("br, deflate", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("gzip;q=0", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("gzip; Q=0", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("gzip;q=zero", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("*;q=0", "gzip")).isFalse();
+    }
+
+    @Test
+    void explicitQualityOverridesTheWildcard() {
+        assertThat(ContentCodecRegistry.isAccepted("*, gzip;q=0", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("gzip;q=0, *", "gzip")).isFalse();
+        assertThat(ContentCodecRegistry.isAccepted("*;q=0, gzip", "gzip")).isTrue();
+    }
+
+    private byte[] encode(byte[] content) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (OutputStream encoder = codec.encode(target)) {
+            encoder.write(content);
+        }
+        return target.toByteArray();
+    }
+}
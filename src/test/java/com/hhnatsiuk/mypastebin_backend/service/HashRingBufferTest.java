@@ -0,0 +1,103 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashRingBufferTest {
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        assertThat(new HashRingBuffer(5).capacity()).isEqualTo(8);
+        assertThat(new HashRingBuffer(8).capacity()).isEqualTo(8);
+        assertThat(new HashRingBuffer(1000).capacity()).isEqualTo(1024);
+    }
+
+    @Test
+    void pollsInOrderAndRefusesOffersWhenFull() {
+        HashRingBuffer buffer = new HashRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer("h" + i)).isTrue();
+        }
+
+        assertThat(buffer.offer("h4")).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.poll()).isEqualTo("h" + i);
+        }
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    void reusesSlotsOnLaterLaps() {
+        HashRingBuffer buffer = new HashRingBuffer(4);
+        buffer.offer("first");
+        String previous = "first";
+        for (int i = 0; i < 100; i++) {
+            assertThat(buffer.offer("h" + i)).isTrue();
+            assertThat(buffer.poll()).isEqualTo(previous);
+            previous = "h" + i;
+        }
+        assertThat(buffer.poll()).isEqualTo("h99");
+        assertThat(buffer.poll()).isNull();
+    }
+
+    @Test
+    void handsEveryValueToExactlyOneConsumer() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        HashRingBuffer buffer = new HashRingBuffer(64);
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers * 2);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        String value = producer + ":" + i;
+                        while (!buffer.offer(value)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }));
+                futures.add(executor.submit(() -> {
+                    while (remaining.get() > 0) {
+                        String value = buffer.poll();
+                        if (value == null) {
+                            Thread.onSpinWait();
+                        } else {
+                            if (!received.add(value)) {
+                                duplicates.incrementAndGet();
+                            }
+                            remaining.decrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(duplicates.get()).isZero();
+        assertThat(received).hasSize(producers * perProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+}
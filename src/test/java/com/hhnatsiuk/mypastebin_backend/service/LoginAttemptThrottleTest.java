@@ -0,0 +1,71 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginAttemptThrottleTest {
+
+    // 3 failures per username and address, 5 per address, over 60 seconds.
+    private final LoginAttemptThrottle throttle = new LoginAttemptThrottle(60_000, 3, 5, 1000);
+
+    @Test
+    void refusesAUsernameThatFailedTooOftenFromTheAddress() {
+        fail("alice", "10.0.0.1", 3);
+
+        assertThatThrownBy(() -> throttle.checkAllowed("alice", "10.0.0.1"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(e -> assertThat(((TooManyRequestsException) e).getRetryAfterSeconds()).isEqualTo(60));
+        assertThat(throttle.getThrottledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresTheCaseOfUsernames() {
+        fail("Alice", "10.0.0.1", 3);
+
+        assertThatThrownBy(() -> throttle.checkAllowed("alice", "10.0.0.1")).isInstanceOf(TooManyRequestsException.class);
+    }
+
+    @Test
+    void failuresFromOneAddressDoNotLockTheAccountElsewhere() {
+        fail("alice", "10.0.0.1", 3);
+
+        assertThatCode(() -> throttle.checkAllowed("alice", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void refusesAnAddressThatFailedTooOftenAcrossUsernames() {
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure("user" + i, "10.0.0.1");
+        }
+
+        assertThatThrownBy(() -> throttle.checkAllowed("someone-else", "10.0.0.1")).isInstanceOf(TooManyRequestsException.class);
+        assertThatCode(() -> throttle.checkAllowed("someone-else", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void successClearsTheUsernameCountOfTheAddress() {
+        fail("alice", "10.0.0.1", 2);
+        throttle.recordSuccess("alice", "10.0.0.1");
+        fail("alice", "10.0.0.1", 2);
+
+        assertThatCode(() -> throttle.checkAllowed("alice", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void acceptsMissingUsernames() {
+        throttle.recordFailure(null, "10.0.0.1");
+        throttle.recordSuccess(null, "10.0.0.1");
+
+        assertThatCode(() -> throttle.checkAllowed(null, "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    private void fail(String username, String address, int times) {
+        for (int i = 0; i < times; i++) {
+            throttle.recordFailure(username, address);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PendingUploadLogTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysPendingUploadsAfterRestart() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("first"));
+        log.append("b", "text/plain", bytes("second"));
+
+        PendingUploadLog reopened = new PendingUploadLog(directory, SEGMENT_BYTES);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(2);
+        assertThat(reopened.read("a")).isEqualTo(bytes("first"));
+        assertThat(reopened.pollBatch(10, System.currentTimeMillis()))
+                .extracting(PendingUploadLog.Entry::getKey, PendingUploadLog.Entry::getContentType)
+                .containsExactly(tuple("a", "text/plain"), tuple("b", "text/plain"));
+    }
+
+    @Test
+    void doesNotReplayCompletedOrDiscardedUploads() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("first"));
+        log.append("b", "text/plain", bytes("second"));
+        log.append("c", "text/plain", bytes("third"));
+        assertThat(log.complete(log.pollBatch(1, System.currentTimeMillis()).get(0))).isTrue();
+        assertThat(log.discard("b")).isTrue();
+
+        PendingUploadLog reopened = new PendingUploadLog(directory, SEGMENT_BYTES);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(1);
+        assertThat(reopened.read("a")).isNull();
+        assertThat(reopened.read("b")).isNull();
+        assertThat(reopened.read("c")).isEqualTo(bytes("third"));
+    }
+
+    @Test
+    void replaysOnlyTheLatestContentOfARewrittenKey() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("old"));
+        log.append("a", "text/plain", bytes("new"));
+
+        PendingUploadLog reopened = new PendingUploadLog(directory, SEGMENT_BYTES);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(1);
+        assertThat(reopened.read("a")).isEqualTo(bytes("new"));
+    }
+
+    @Test
+    void ignoresATornRecordAndEverythingAfterIt() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("intact"));
+        log.append("b", "text/plain", bytes("torn-payload"));
+        log.append("c", "text/plain", bytes("after"));
+        corrupt(onlySegment(), "torn-payload");
+
+        PendingUploadLog reopened = new PendingUploadLog(directory, SEGMENT_BYTES);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(1);
+        assertThat(reopened.read("a")).isEqualTo(bytes("intact"));
+        assertThat(reopened.read("b")).isNull();
+        assertThat(reopened.read("c")).isNull();
+    }
+
+    @Test
+    void appendsOverATornTailAfterRecovery() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("intact"));
+        log.append("b", "text/plain", bytes("torn-payload"));
+        corrupt(onlySegment(), "torn-payload");
+
+        new PendingUploadLog(directory, SEGMENT_BYTES).append("d", "text/plain", bytes("appended"));
+        PendingUploadLog reopened = new PendingUploadLog(directory, SEGMENT_BYTES);
+
+        assertThat(reopened.getPendingCount()).isEqualTo(2);
+        assertThat(reopened.read("a")).isEqualTo(bytes("intact"));
+        assertThat(reopened.read("d")).isEqualTo(bytes("appended"));
+    }
+
+    @Test
+    void deletesSegmentsOnceNothingInThemIsPending() throws IOException {
+        // Room for one record and a tombstone per segment.
+        PendingUploadLog log = new PendingUploadLog(directory, 128);
+        log.append("a", "text/plain", new byte[60]);
+        log.append("b", "text/plain", new byte[60]);
+        assertThat(log.getSegmentCount()).isEqualTo(2);
+
+        log.complete(log.pollBatch(1, System.currentTimeMillis()).get(0));
+
+        assertThat(log.getSegmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(new PendingUploadLog(directory, 128).read("b")).isEqualTo(new byte[60]);
+    }
+
+    @Test
+    void pollsOnlyEntriesWhoseRetryIsDue() throws IOException {
+        PendingUploadLog log = new PendingUploadLog(directory, SEGMENT_BYTES);
+        log.append("a", "text/plain", bytes("first"));
+        log.append("b", "text/plain", bytes("second"));
+        PendingUploadLog.Entry first = log.pollBatch(1, 0).get(0);
+
+        log.retryLater(first, 1000);
+
+        assertThat(log.pollBatch(10, 999)).extracting(PendingUploadLog.Entry::getKey).containsExactly("b");
+        assertThat(log.pollBatch(10, 1000)).extracting(PendingUploadLog.Entry::getKey).containsExactly("a", "b");
+        assertThat(first.getAttempts()).isEqualTo(1);
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> files = segmentFiles();
+        assertThat(files).hasSize(1);
+        return files.get(0);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.filter(path -> path.toString().endsWith(".wal")).toList();
+        }
+    }
+
+    /**
+     * Flips the last byte of the given payload in the segment file, as a write cut short by a crash would leave it.
+     */
+    private static void corrupt(Path segment, String payload) throws IOException {
+        byte[] content = Files.readAllBytes(segment);
+        String text = new String(content, StandardCharsets.ISO_8859_1);
+        int offset = text.indexOf(payload) + payload.length() - 1;
+        assertThat(offset).isPositive();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) ~content[offset]}), offset);
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,43 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostServicePreviewTest {
+
+    @Test
+    void keepsTheLimitAfterAsciiAndWholeCharacters() {
+        assertThat(PostService.utf8BoundaryBefore(utf8("abcd"), 3)).isEqualTo(3);
+        assertThat(PostService.utf8BoundaryBefore(utf8("aéb"), 3)).isEqualTo(3);
+        assertThat(PostService.utf8BoundaryBefore(utf8("a€b"), 4)).isEqualTo(4);
+        assertThat(PostService.utf8BoundaryBefore(utf8("a😀b"), 5)).isEqualTo(5);
+    }
+
+    @Test
+    void cutsBeforeACharacterSplitByTheLimit() {
+        // é is 2 bytes, € is 3 and 😀 is 4.
+        assertThat(PostService.utf8BoundaryBefore(utf8("aé"), 2)).isEqualTo(1);
+        assertThat(PostService.utf8BoundaryBefore(utf8("a€"), 2)).isEqualTo(1);
+        assertThat(PostService.utf8BoundaryBefore(utf8("a€"), 3)).isEqualTo(1);
+        assertThat(PostService.utf8BoundaryBefore(utf8("😀"), 1)).isZero();
+        assertThat(PostService.utf8BoundaryBefore(utf8("😀"), 3)).isZero();
+    }
+
+    @Test
+    void cutPrefixDecodesWithoutReplacementCharacters() {
+        byte[] bytes = utf8("żółw €uro 😀!");
+        for (int limit = 0; limit <= bytes.length; limit++) {
+            int boundary = PostService.utf8BoundaryBefore(bytes, limit);
+
+            assertThat(boundary).isBetween(Math.max(0, limit - 3), limit);
+            assertThat(new String(bytes, 0, boundary, StandardCharsets.UTF_8)).doesNotContain("�");
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.dto.PostDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostServiceRecentPostsTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final ViewCountAggregator viewCountAggregator = mock(ViewCountAggregator.class);
+    private final RecentPostsFeed recentPostsFeed = new RecentPostsFeed(postRepository, viewCountAggregator, 2);
+    private final PostService postService = new PostService(postRepository, null, null, null, null, null, null, null,
+            null, viewCountAggregator, null, recentPostsFeed, null, null, null, null, new SimpleMeterRegistry(),
+            true, 4096, true);
+
+    @Test
+    void readsACategoryMissingFromTheFeedFromTheDatabase() {
+        PostSummary java1 = summary(3, "c", "java");
+        PostSummary java2 = summary(2, "b", "java");
+        PostSummary rust = summary(1, "a", "rust");
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class))).thenReturn(List.of(java1, java2));
+        when(postRepository.findRecent(eq("rust"), any(OffsetDateTime.class), any(Pageable.class))).thenReturn(List.of(rust));
+        recentPostsFeed.refresh();
+
+        List<PostDTO> recent = postService.getRecentPostsDTO(2, "rust");
+
+        assertThat(recent).extracting(PostDTO::getHash).containsExactly("a");
+    }
+
+    private static PostSummary summary(long id, String hash, String category) {
+        PostSummary summary = mock(PostSummary.class);
+        when(summary.getId()).thenReturn(id);
+        when(summary.getHash()).thenReturn(hash);
+        when(summary.getCategory()).thenReturn(category);
+        when(summary.getCreatedAt()).thenReturn(NOW.minusMinutes(id));
+        when(summary.getExpirationDate()).thenReturn(NOW.plusDays(1));
+        when(summary.getViews()).thenReturn(0);
+        return summary;
+    }
+}
@@ -0,0 +1,53 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    // One request a second for CREATE, with bursts of two.
+    private final RateLimiter rateLimiter = new RateLimiter(60, 2, 600, 100, 60, 10, 1000);
+
+    @Test
+    void allowsTheBurstThenAsksToWait() {
+        assertThat(rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client")).isZero();
+        assertThat(rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client")).isZero();
+
+        long wait = rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+
+        assertThat(wait).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(rateLimiter.getRejectedCount(RateLimiter.Policy.CREATE)).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpTokens() {
+        rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+        rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+        long firstWait = rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+        long secondWait = rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+
+        assertThat(secondWait).isPositive().isLessThanOrEqualTo(firstWait);
+    }
+
+    @Test
+    void keepsABucketPerClientAndPolicy() {
+        rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+        rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+
+        assertThat(rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "other")).isZero();
+        assertThat(rateLimiter.tryAcquire(RateLimiter.Policy.READ, "client")).isZero();
+        assertThat(rateLimiter.getTrackedClientCount(RateLimiter.Policy.CREATE)).isEqualTo(2);
+    }
+
+    @Test
+    void sweepKeepsBucketsThatAreNotFull() {
+        rateLimiter.tryAcquire(RateLimiter.Policy.CREATE, "client");
+
+        rateLimiter.sweep();
+
+        assertThat(rateLimiter.getTrackedClientCount(RateLimiter.Policy.CREATE)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,157 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import com.hhnatsiuk.mypastebin_backend.dto.PostDTO;
+import com.hhnatsiuk.mypastebin_backend.dto.PostSummary;
+import com.hhnatsiuk.mypastebin_backend.entity.Post;
+import com.hhnatsiuk.mypastebin_backend.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecentPostsFeedTest {
+
+    private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+    private final ViewCountAggregator viewCountAggregator = mock(ViewCountAggregator.class);
+    private final RecentPostsFeed feed = new RecentPostsFeed(postRepository, viewCountAggregator, 10);
+
+    @Test
+    void answersNothingUntilLoaded() {
+        assertThat(feed.getRecent(5, null)).isNull();
+        assertThat(feed.getPage(5, null, null)).isNull();
+    }
+
+    @Test
+    void loadsTheNewestPostsWithTheirPendingViews() {
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class)))
+                .thenReturn(List.of(summary(2, "b", NOW.minusMinutes(1)), summary(1, "a", NOW.minusMinutes(2))));
+        when(viewCountAggregator.getPendingViews("a")).thenReturn(3L);
+
+        feed.refresh();
+
+        List<PostDTO> recent = feed.getRecent(5, null);
+        assertThat(recent).extracting(PostDTO::getHash).containsExactly("b", "a");
+        assertThat(recent.get(1).getViews()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsPostsPushedAndRemovedWhileRefreshing() {
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class))).thenAnswer(invocation -> {
+            // The query does not see the post created meanwhile but still returns the deleted one.
+            feed.push(post(3, "c", OffsetDateTime.now().plusSeconds(1)));
+            feed.remove("b");
+            return List.of(summary(2, "b", NOW.minusMinutes(1)), summary(1, "a", NOW.minusMinutes(2)));
+        });
+
+        feed.refresh();
+
+        assertThat(feed.getRecent(5, null)).extracting(PostDTO::getHash).containsExactly("c", "a");
+    }
+
+    @Test
+    void dropsPostsTheRefreshNoLongerFinds() {
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class)))
+                .thenReturn(List.of(summary(1, "a", NOW.minusMinutes(2))))
+                .thenReturn(List.of());
+        feed.refresh();
+        feed.push(post(2, "b", NOW.minusMinutes(1)));
+
+        feed.refresh();
+
+        assertThat(feed.getRecent(5, null)).isEmpty();
+    }
+
+    @Test
+    void leavesOutExpiredPostsAndOtherCategories() {
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class))).thenReturn(List.of(
+                summary(3, "c", NOW.minusMinutes(1), NOW.minusSeconds(1), "java"),
+                summary(2, "b", NOW.minusMinutes(2), NOW.plusDays(1), "go"),
+                summary(1, "a", NOW.minusMinutes(3), NOW.plusDays(1), "java")));
+
+        feed.refresh();
+
+        assertThat(feed.getRecent(5, "java")).extracting(PostDTO::getHash).containsExactly("a");
+        assertThat(feed.getRecent(5, null)).extracting(PostDTO::getHash).containsExactly("b", "a");
+    }
+
+    @Test
+    void defersToTheDatabaseWhenOlderPostsMayMatch() {
+        RecentPostsFeed shallowFeed = new RecentPostsFeed(postRepository, viewCountAggregator, 2);
+        when(postRepository.findAllByOrderByCreatedAtDescIdDesc(any(Pageable.class))).thenReturn(List.of(
+                summary(3, "c", NOW.minusMinutes(1), NOW.plusDays(1), "java"),
+                summary(2, "b", NOW.minusMinutes(2), NOW.plusDays(1), "java")));
+
+        shallowFeed.refresh();
+
+        assertThat(shallowFeed.getRecent(2, "java")).extracting(PostDTO::getHash).containsExactly("c", "b");
+        assertThat(shallowFeed.getRecent(1, "rust")).isNull();
+        assertThat(shallowFeed.getRecent(3, null)).isNull();
+    }
+
+    private static PostSummary summary(long id, String hash, OffsetDateTime createdAt) {
+        return summary(id, hash, createdAt, NOW.plusDays(1), null);
+    }
+
+    private static PostSummary summary(long id, String hash, OffsetDateTime createdAt,
+                                       OffsetDateTime expirationDate, String category) {
+        return new PostSummary() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getHash() {
+                return hash;
+            }
+
+            @Override
+            public String getTitle() {
+                return "title " + hash;
+            }
+
+            @Override
+            public String getCategory() {
+                return category;
+            }
+
+            @Override
+            public OffsetDateTime getCreatedAt() {
+                return createdAt;
+            }
+
+            @Override
+            public OffsetDateTime getExpirationDate() {
+                return expirationDate;
+            }
+
+            @Override
+            public Integer getViews() {
+                return 0;
+            }
+
+            @Override
+            public Long getFileSize() {
+                return 10L;
+            }
+        };
+    }
+
+    private static Post post(long id, String hash, OffsetDateTime createdAt) {
+        Post post = new Post();
+        post.setId(id);
+        post.setHash(hash);
+        post.setTitle("title " + hash);
+        post.setCreatedAt(createdAt);
+        post.setExpirationDate(NOW.plusDays(1));
+        return post;
+    }
+}
@@ -0,0 +1,138 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnowflakeHashGeneratorServiceTest {
+
+    private static final long NOW = SnowflakeHashGeneratorService.EPOCH_MILLIS + 1_000_000;
+    private static final int SEQUENCES_PER_MILLISECOND = 4096;
+
+    private final SnowflakeHashGeneratorService generator = new SnowflakeHashGeneratorService(42, null);
+
+    @Test
+    void numbersIdsWithinAMillisecondBySequence() {
+        long first = generator.nextId(NOW);
+        long second = generator.nextId(NOW);
+
+        assertThat(timestampOf(first)).isEqualTo(timestampOf(second)).isEqualTo(NOW - SnowflakeHashGeneratorService.EPOCH_MILLIS);
+        assertThat(sequenceOf(first)).isZero();
+        assertThat(sequenceOf(second)).isEqualTo(1);
+        assertThat(nodeOf(first)).isEqualTo(42);
+    }
+
+    @Test
+    void startsTheSequenceOverInTheNextMillisecond() {
+        generator.nextId(NOW);
+        generator.nextId(NOW);
+
+        long id = generator.nextId(NOW + 1);
+
+        assertThat(timestampOf(id)).isEqualTo(NOW + 1 - SnowflakeHashGeneratorService.EPOCH_MILLIS);
+        assertThat(sequenceOf(id)).isZero();
+    }
+
+    @Test
+    void movesOnToTheNextMillisecondWhenTheSequenceRunsOut() {
+        long last = 0;
+        for (int i = 0; i < SEQUENCES_PER_MILLISECOND; i++) {
+            last = generator.nextId(NOW);
+        }
+        assertThat(sequenceOf(last)).isEqualTo(SEQUENCES_PER_MILLISECOND - 1);
+
+        long borrowed = generator.nextId(NOW);
+        long caughtUp = generator.nextId(NOW + 1);
+
+        assertThat(timestampOf(borrowed)).isEqualTo(timestampOf(last) + 1);
+        assertThat(sequenceOf(borrowed)).isZero();
+        assertThat(caughtUp).isGreaterThan(borrowed);
+        assertThat(timestampOf(caughtUp)).isEqualTo(timestampOf(borrowed));
+    }
+
+    @Test
+    void keepsIdsIncreasingWhenTheClockMovesBackwards() {
+        long before = generator.nextId(NOW);
+
+        long afterSetback = generator.nextId(NOW - 5_000);
+
+        assertThat(afterSetback).isGreaterThan(before);
+        assertThat(timestampOf(afterSetback)).isEqualTo(timestampOf(before));
+        assertThat(sequenceOf(afterSetback)).isEqualTo(1);
+    }
+
+    @Test
+    void handsOutUniqueIdsAcrossThreads() throws Exception {
+        int threads = 4;
+        int idsPerThread = 20_000;
+        Set<String> hashes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < idsPerThread; i++) {
+                        hashes.add(generator.generateUniqueHash());
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(hashes).hasSize(threads * idsPerThread);
+    }
+
+    @Test
+    void refusesIdsWhileTheNodeIdLeaseIsLost() {
+        ExclusiveLease lease = mock(ExclusiveLease.class);
+        when(lease.isHeld()).thenReturn(false);
+        SnowflakeHashGeneratorService unleased = new SnowflakeHashGeneratorService(42, lease);
+
+        assertThatThrownBy(unleased::generateUniqueHash)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("42");
+    }
+
+    @Test
+    void rejectsUnsetAndOutOfRangeNodeIds() {
+        assertThatThrownBy(() -> SnowflakeHashGeneratorService.checkNodeId(SnowflakeHashGeneratorService.UNSET_NODE_ID))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> SnowflakeHashGeneratorService.checkNodeId(1024)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(SnowflakeHashGeneratorService.checkNodeId(1023)).isEqualTo(1023);
+    }
+
+    @Test
+    void rendersIdsInBase62() {
+        assertThat(SnowflakeHashGeneratorService.toBase62(0)).isEqualTo("0");
+        assertThat(SnowflakeHashGeneratorService.toBase62(61)).isEqualTo("z");
+        assertThat(SnowflakeHashGeneratorService.toBase62(62)).isEqualTo("10");
+        assertThat(SnowflakeHashGeneratorService.toBase62(Long.MAX_VALUE)).isEqualTo("AzL8n0Y58m7");
+    }
+
+    private static long timestampOf(long id) {
+        return id >>> 22;
+    }
+
+    private static long nodeOf(long id) {
+        return (id >>> 12) & 1023;
+    }
+
+    private static long sequenceOf(long id) {
+        return id & 4095;
+    }
+}
@@ -0,0 +1,167 @@
+package com.hhnatsiuk.mypastebin_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class ViewCountAggregatorTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<Object[]> written = new ArrayList<>();
+    private final ViewCountAggregator aggregator = new ViewCountAggregator(jdbcTemplate);
+
+    @Test
+    void flushWritesTheViewsOfEachPostInOneBatch() {
+        recordWrites();
+        view("a", 3);
+        view("b", 1);
+
+        aggregator.flush();
+
+        assertThat(written).extracting(args -> args[1], args -> args[0])
+                .containsExactlyInAnyOrder(tuple("a", 3L), tuple("b", 1L));
+        assertThat(aggregator.getPendingViews("a")).isZero();
+        assertThat(aggregator.getPendingViews("b")).isZero();
+        assertThat(aggregator.getFlushedViewCount()).isEqualTo(4);
+    }
+
+    @Test
+    void keepsViewsPendingUntilTheWriteReturns() {
+        List<Long> pendingDuringWrite = new ArrayList<>();
+        doAnswer(invocation -> {
+            pendingDuringWrite.add(aggregator.getPendingViews("a"));
+            return new int[]{1};
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        view("a", 2);
+
+        aggregator.flush();
+
+        assertThat(pendingDuringWrite).containsExactly(2L);
+        assertThat(aggregator.getPendingViews("a")).isZero();
+    }
+
+    @Test
+    void keepsViewsOfAFailedFlushForTheNextOne() {
+        doAnswer(invocation -> {
+            throw new DataAccessResourceFailureException("database down");
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+        view("a", 2);
+
+        aggregator.flush();
+
+        assertThat(aggregator.getFlushFailureCount()).isEqualTo(1);
+        assertThat(aggregator.getPendingViews("a")).isEqualTo(2);
+
+        recordWrites();
+        view("a", 1);
+        aggregator.flush();
+
+        assertThat(written).extracting(args -> args[1], args -> args[0]).containsExactly(tuple("a", 3L));
+        assertThat(aggregator.getFlushedViewCount()).isEqualTo(3);
+    }
+
+    @Test
+    void retiresCountersThatStayedIdleForAWholeInterval() {
+        recordWrites();
+        view("a", 1);
+
+        aggregator.flush();
+        assertThat(aggregator.getTrackedPostCount()).isEqualTo(1);
+
+        aggregator.flush();
+        assertThat(aggregator.getTrackedPostCount()).isZero();
+
+        view("a", 1);
+        assertThat(aggregator.getPendingViews("a")).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotWriteWhenNothingWasViewed() {
+        aggregator.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void discardDropsThePendingViewsOfAPost() {
+        view("a", 2);
+
+        aggregator.discard("a");
+
+        assertThat(aggregator.getPendingViews("a")).isZero();
+        assertThat(aggregator.getTrackedPostCount()).isZero();
+    }
+
+    @Test
+    void flushesEveryViewExactlyOnceWhileCountersAreRetiredConcurrently() throws Exception {
+        AtomicLong writtenViews = new AtomicLong();
+        doAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            batch.forEach(args -> writtenViews.addAndGet((Long) args[0]));
+            return new int[batch.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+
+        int threads = 4;
+        int viewsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean viewing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> viewers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                viewers.add(executor.submit(() -> {
+                    for (int i = 0; i < viewsPerThread; i++) {
+                        // Few views per hash keep counters going idle and being retired.
+                        aggregator.increment("post-" + (i % 64));
+                    }
+                }));
+            }
+            Future<?> flusher = executor.submit(() -> {
+                while (viewing.get()) {
+                    aggregator.flush();
+                }
+            });
+            for (Future<?> viewer : viewers) {
+                viewer.get();
+            }
+            viewing.set(false);
+            flusher.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        aggregator.flush();
+
+        assertThat(writtenViews.get()).isEqualTo((long) threads * viewsPerThread);
+        assertThat(aggregator.getFlushedViewCount()).isEqualTo((long) threads * viewsPerThread);
+    }
+
+    private void recordWrites() {
+        doAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            written.addAll(batch);
+            return new int[batch.size()];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    private void view(String hash, int times) {
+        for (int i = 0; i < times; i++) {
+            aggregator.increment(hash);
+        }
+    }
+}
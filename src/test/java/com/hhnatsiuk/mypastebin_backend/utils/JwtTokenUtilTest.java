@@ -0,0 +1,132 @@
+package com.hhnatsiuk.mypastebin_backend.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.hhnatsiuk.mypastebin_backend.entity.User;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenUtilTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString("a-test-secret-of-at-least-256-bits!!".getBytes());
+
+    private final long now = System.currentTimeMillis();
+
+    @Test
+    void verifiesTheTokensItIssues() {
+        JwtTokenUtil jwtTokenUtil = jwtTokenUtil(100);
+        String token = jwtTokenUtil.generateToken(User.builder().username("alice").email("alice@example.com").build());
+
+        assertThat(jwtTokenUtil.extractUsername(token)).isEqualTo("alice");
+        assertThat(jwtTokenUtil.getVerifiedTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsForgedAndExpiredTokens() {
+        JwtTokenUtil jwtTokenUtil = jwtTokenUtil(100);
+        String forged = Jwts.builder()
+                .setSubject("alice")
+                .setExpiration(new Date(now + 60_000))
+                .signWith(SignatureAlgorithm.HS256, Base64.getEncoder().encodeToString("another-secret-of-at-least-256-bits!".getBytes()))
+                .compact();
+
+        assertThatThrownBy(() -> jwtTokenUtil.verify(forged)).hasMessage("Invalid token");
+        assertThatThrownBy(() -> jwtTokenUtil.verify(token("alice", now - 120_000, now - 60_000))).hasMessage("Invalid token");
+    }
+
+    @Test
+    void rejectsARevokedTokenOnly() {
+        JwtTokenUtil jwtTokenUtil = jwtTokenUtil(100);
+        String revoked = token("alice", now - 10_000);
+        String other = token("alice", now - 5_000);
+        jwtTokenUtil.verify(revoked);
+
+        jwtTokenUtil.revoke(revoked);
+
+        assertThatThrownBy(() -> jwtTokenUtil.verify(revoked)).hasMessage("Token has been revoked");
+        assertThat(jwtTokenUtil.verify(other).username()).isEqualTo("alice");
+    }
+
+    @Test
+    void revokeAllForRejectsEveryTokenIssuedToTheUserSoFar() {
+        JwtTokenUtil jwtTokenUtil = jwtTokenUtil(100);
+        String earlier = token("alice", now - 10_000);
+        String latest = token("alice", now - 1_000);
+        String otherUser = token("bob", now - 10_000);
+
+        jwtTokenUtil.revokeAllFor("alice");
+
+        assertThatThrownBy(() -> jwtTokenUtil.verify(earlier)).hasMessage("Token has been revoked");
+        assertThatThrownBy(() -> jwtTokenUtil.verify(latest)).hasMessage("Token has been revoked");
+        assertThat(jwtTokenUtil.verify(otherUser).username()).isEqualTo("bob");
+        assertThat(jwtTokenUtil.verify(token("alice", now + 2_000)).username()).isEqualTo("alice");
+    }
+
+    @Test
+    void widensEvictedRevocationsToEarlierTokensOfTheirUser() {
+        JwtTokenUtil jwtTokenUtil = jwtTokenUtil(1);
+        String[] revoked = {token("alice", now - 30_000), token("bob", now - 20_000), token("carol", now - 10_000)};
+        String[] earlier = {token("alice", now - 40_000), token("bob", now - 40_000), token("carol", now - 40_000)};
+        String[] later = {token("alice", now - 5_000), token("bob", now - 5_000), token("carol", now - 5_000)};
+
+        for (String token : revoked) {
+            jwtTokenUtil.revoke(token);
+        }
+        Cache<String, ?> revokedTokens = revokedTokensOf(jwtTokenUtil);
+        revokedTokens.cleanUp();
+        assertThat(revokedTokens.estimatedSize()).isEqualTo(1);
+
+        for (int i = 0; i < revoked.length; i++) {
+            String revokedToken = revoked[i];
+            String earlierToken = earlier[i];
+            String laterToken = later[i];
+            assertThatThrownBy(() -> jwtTokenUtil.verify(revokedToken)).hasMessage("Token has been revoked");
+            // The one revocation still kept by itself only covers its own token.
+            if (revokedTokens.getIfPresent(digestOf(revokedToken)) == null) {
+                assertThatThrownBy(() -> jwtTokenUtil.verify(earlierToken)).hasMessage("Token has been revoked");
+            }
+            assertThatCode(() -> jwtTokenUtil.verify(laterToken)).doesNotThrowAnyException();
+        }
+    }
+
+    private JwtTokenUtil jwtTokenUtil(long revokedMaxSize) {
+        JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenUtil, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtTokenUtil, "expirationInMinutes", 60);
+        ReflectionTestUtils.setField(jwtTokenUtil, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(jwtTokenUtil, "revokedMaxSize", revokedMaxSize);
+        jwtTokenUtil.initCaches();
+        return jwtTokenUtil;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<String, ?> revokedTokensOf(JwtTokenUtil jwtTokenUtil) {
+        return (Cache<String, ?>) ReflectionTestUtils.getField(jwtTokenUtil, "revokedTokens");
+    }
+
+    private String token(String username, long issuedAtMillis) {
+        return token(username, issuedAtMillis, now + 3_600_000);
+    }
+
+    private static String token(String username, long issuedAtMillis, long expiresAtMillis) {
+        return Jwts.builder()
+                .setSubject(username)
+                .setIssuedAt(new Date(issuedAtMillis))
+                .setExpiration(new Date(expiresAtMillis))
+                .signWith(SignatureAlgorithm.HS256, SECRET)
+                .compact();
+    }
+
+    private static String digestOf(String token) {
+        return (String) ReflectionTestUtils.invokeMethod(JwtTokenUtil.class, "digestOf", token);
+    }
+}
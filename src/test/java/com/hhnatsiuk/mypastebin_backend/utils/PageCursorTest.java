@@ -0,0 +1,62 @@
+package com.hhnatsiuk.mypastebin_backend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        PageCursor cursor = new PageCursor(OffsetDateTime.of(2024, 5, 17, 10, 15, 30, 123_456_000, ZoneOffset.UTC), 42);
+
+        PageCursor decoded = PageCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+    }
+
+    @Test
+    void keepsTheInstantOfOtherOffsets() {
+        OffsetDateTime createdAt = OffsetDateTime.of(2024, 5, 17, 12, 0, 0, 0, ZoneOffset.ofHours(2));
+
+        PageCursor decoded = PageCursor.decode(new PageCursor(createdAt, 7).encode());
+
+        assertThat(decoded.createdAt().isEqual(createdAt)).isTrue();
+        assertThat(decoded.id()).isEqualTo(7);
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThatThrownBy(() -> PageCursor.decode("not base64!")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(token("123"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(token("abc:1"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(token("1:"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTimestampsOutOfRange() {
+        assertThatThrownBy(() -> PageCursor.decode(token(Long.MAX_VALUE + ":1"))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PageCursor.decode(token(Long.MIN_VALUE + ":1"))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ordersByCreationTimeThenId() {
+        OffsetDateTime createdAt = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        PageCursor cursor = new PageCursor(createdAt, 10);
+
+        assertThat(cursor.precedes(createdAt.minusSeconds(1), 99)).isTrue();
+        assertThat(cursor.precedes(createdAt, 9)).isTrue();
+        assertThat(cursor.precedes(createdAt, 10)).isFalse();
+        assertThat(cursor.precedes(createdAt.plusSeconds(1), 1)).isFalse();
+    }
+
+    private static String token(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.US_ASCII));
+    }
+}